@@ -0,0 +1,70 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.UserOrder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cart mutation and checkout costs as a function of cart size.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CartBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int lines;
+
+    private Cart cart;
+    private Item existing;
+    private Item fresh;
+
+    @Setup
+    public void setUp() {
+        cart = Fixtures.cart(lines);
+        existing = Fixtures.item(lines / 2 + 1);
+        fresh = Fixtures.item(lines + 1);
+    }
+
+    /**
+     * Adds one unit of an item that is not yet in the cart and takes it out again, so the
+     * cart size stays stable across invocations.
+     */
+    @Benchmark
+    public Cart addAndRemoveNewItem() {
+        cart.addItem(fresh);
+        cart.removeItem(fresh);
+        return cart;
+    }
+
+    /**
+     * Adds and removes one more unit of an item already in the middle of the cart.
+     */
+    @Benchmark
+    public Cart addAndRemoveExistingItem() {
+        cart.addItem(existing);
+        cart.removeItem(existing);
+        return cart;
+    }
+
+    @Benchmark
+    public UserOrder createOrderFromCart() {
+        return UserOrder.createFromCart(cart);
+    }
+}
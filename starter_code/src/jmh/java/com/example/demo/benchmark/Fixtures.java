@@ -0,0 +1,44 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.User;
+
+import java.math.BigDecimal;
+
+final class Fixtures {
+    private Fixtures() {
+    }
+
+    static Item item(long id) {
+        Item item = new Item();
+        item.setId(id);
+        item.setName("Item " + id);
+        item.setDescription("Benchmark item number " + id);
+        item.setPrice(BigDecimal.valueOf(100 + id % 900, 2));
+        return item;
+    }
+
+    static User user() {
+        User user = new User();
+        user.setId(1L);
+        user.setUsername("benchmark");
+        user.setPassword("hashedPassword");
+        return user;
+    }
+
+    /**
+     * Builds a cart holding {@code lines} distinct items, owned by a fresh user.
+     */
+    static Cart cart(int lines) {
+        User user = user();
+        Cart cart = new Cart();
+        cart.setId(1L);
+        cart.setUser(user);
+        user.setCart(cart);
+        for (long id = 1; id <= lines; id++) {
+            cart.addItem(item(id));
+        }
+        return cart;
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.demo.benchmark;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.example.demo.security.AuthenticatedUser;
+import com.example.demo.security.JWTTokenVerifier;
+import com.example.demo.security.SecurityConstants;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import static com.auth0.jwt.algorithms.Algorithm.HMAC512;
+
+/**
+ * Token issue and verification, mirroring what {@code JWTAuthenticationFilter} does on login
+ * and {@code JWTAuthenticationVerificationFilter} does on every authenticated request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtBenchmark {
+
+    private String header;
+    private JWTTokenVerifier tokenVerifier;
+
+    @Setup
+    public void setUp() {
+        header = SecurityConstants.TOKEN_PREFIX + sign();
+        tokenVerifier = new JWTTokenVerifier(10_000);
+    }
+
+    @Benchmark
+    public String sign() {
+        return JWT.create()
+                .withSubject("benchmark")
+                .withExpiresAt(new Date(System.currentTimeMillis() + SecurityConstants.EXPIRATION_TIME))
+                .sign(HMAC512(SecurityConstants.SECRET.getBytes()));
+    }
+
+    /**
+     * Builds a fresh verifier and fully verifies the token, as the filter did before
+     * {@link JWTTokenVerifier} was introduced.
+     */
+    @Benchmark
+    public String verifyUncached() {
+        return JWT.require(Algorithm.HMAC512(SecurityConstants.SECRET.getBytes())).build()
+                .verify(header.replace(SecurityConstants.TOKEN_PREFIX, ""))
+                .getSubject();
+    }
+
+    /**
+     * Steady state of the verification filter: the same token is presented on every request.
+     */
+    @Benchmark
+    public AuthenticatedUser verifyCached() {
+        return tokenVerifier.verify(header.replace(SecurityConstants.TOKEN_PREFIX, ""));
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.model.persistence.Item;
+import com.example.demo.service.ItemSearchIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Search latency over a catalog of a million items with names and descriptions drawn from a
+ * synthetic vocabulary of a few thousand words.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SearchBenchmark {
+    private static final String[] SYLLABLES = {
+            "ka", "lo", "mi", "ne", "ru", "sa", "ti", "vo", "zen", "bar", "qui", "dor", "fel", "gra", "hom", "pix"
+    };
+
+    @Param({"1000000"})
+    public int items;
+
+    @Param({"kalo", "zen", "mi", "fel gra", "vo ti ne"})
+    public String query;
+
+    private ItemSearchIndex index;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        String[] vocabulary = new String[5000];
+        for (int i = 0; i < vocabulary.length; i++) {
+            StringBuilder word = new StringBuilder();
+            int syllables = 2 + random.nextInt(3);
+            for (int s = 0; s < syllables; s++) {
+                word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            vocabulary[i] = word.toString();
+        }
+
+        List<Item> catalog = new ArrayList<>(items);
+        for (long id = 1; id <= items; id++) {
+            Item item = new Item();
+            item.setId(id);
+            item.setName(words(random, vocabulary, 2 + random.nextInt(2)));
+            item.setDescription(words(random, vocabulary, 6));
+            item.setPrice(BigDecimal.ONE);
+            catalog.add(item);
+        }
+        index = new ItemSearchIndex();
+        index.replaceAll(catalog);
+    }
+
+    private static String words(Random random, String[] vocabulary, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(vocabulary[random.nextInt(vocabulary.length)]);
+        }
+        return text.toString();
+    }
+
+    @Benchmark
+    public List<Item> search() {
+        return index.search(query, ItemSearchIndex.DEFAULT_LIMIT);
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.demo.loadtest;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Measured throughput, error rate and latency percentiles of one endpoint.
+ */
+public class EndpointResult {
+    @JsonProperty
+    private long requests;
+
+    @JsonProperty
+    private double throughput;
+
+    @JsonProperty
+    private double errorRate;
+
+    @JsonProperty
+    private double p50Millis;
+
+    @JsonProperty
+    private double p90Millis;
+
+    @JsonProperty
+    private double p99Millis;
+
+    @JsonProperty
+    private double p999Millis;
+
+    @JsonProperty
+    private double maxMillis;
+
+    EndpointResult() {
+    }
+
+    EndpointResult(long requests, double throughput, double errorRate, double p50Millis, double p90Millis,
+                   double p99Millis, double p999Millis, double maxMillis) {
+        this.requests = requests;
+        this.throughput = throughput;
+        this.errorRate = errorRate;
+        this.p50Millis = p50Millis;
+        this.p90Millis = p90Millis;
+        this.p99Millis = p99Millis;
+        this.p999Millis = p999Millis;
+        this.maxMillis = maxMillis;
+    }
+
+    public long getRequests() {
+        return requests;
+    }
+
+    /**
+     * Requests per second.
+     */
+    public double getThroughput() {
+        return throughput;
+    }
+
+    public double getErrorRate() {
+        return errorRate;
+    }
+
+    public double getP50Millis() {
+        return p50Millis;
+    }
+
+    public double getP90Millis() {
+        return p90Millis;
+    }
+
+    public double getP99Millis() {
+        return p99Millis;
+    }
+
+    public double getP999Millis() {
+        return p999Millis;
+    }
+
+    public double getMaxMillis() {
+        return maxMillis;
+    }
+}
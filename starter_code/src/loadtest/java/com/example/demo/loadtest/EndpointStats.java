@@ -0,0 +1,49 @@
+package com.example.demo.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies and error count of one endpoint, recorded concurrently by all virtual users.
+ */
+class EndpointStats {
+    private static final long MAX_LATENCY_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final Recorder latencies = new Recorder(MAX_LATENCY_NANOS, 3);
+    private final LongAdder errors = new LongAdder();
+
+    void record(long latencyNanos, boolean error) {
+        latencies.recordValue(Math.min(latencyNanos, MAX_LATENCY_NANOS));
+        if (error) {
+            errors.increment();
+        }
+    }
+
+    /**
+     * Discards everything recorded so far, at the end of the warm-up.
+     */
+    void reset() {
+        latencies.reset();
+        errors.reset();
+    }
+
+    EndpointResult result(double seconds) {
+        Histogram histogram = latencies.getIntervalHistogram();
+        long requests = histogram.getTotalCount();
+        return new EndpointResult(requests,
+                requests / seconds,
+                requests == 0 ? 0.0 : errors.sum() / (double) requests,
+                millis(histogram.getValueAtPercentile(50)),
+                millis(histogram.getValueAtPercentile(90)),
+                millis(histogram.getValueAtPercentile(99)),
+                millis(histogram.getValueAtPercentile(99.9)),
+                millis(histogram.getMaxValue()));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
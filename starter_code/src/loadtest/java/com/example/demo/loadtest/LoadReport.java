@@ -0,0 +1,107 @@
+package com.example.demo.loadtest;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Results of one load test run, per endpoint, in a form that can be stored as a baseline and
+ * compared against later runs.
+ */
+public class LoadReport {
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    @JsonProperty
+    private int users;
+
+    @JsonProperty
+    private double durationSeconds;
+
+    @JsonProperty
+    private String mix;
+
+    @JsonProperty
+    private String serverThreads;
+
+    @JsonProperty
+    private Map<String, EndpointResult> endpoints = new LinkedHashMap<>();
+
+    LoadReport() {
+    }
+
+    LoadReport(int users, double durationSeconds, String mix, String serverThreads,
+               Map<String, EndpointResult> endpoints) {
+        this.users = users;
+        this.durationSeconds = durationSeconds;
+        this.mix = mix;
+        this.serverThreads = serverThreads;
+        this.endpoints = endpoints;
+    }
+
+    public static LoadReport read(Path path) throws IOException {
+        return MAPPER.readValue(path.toFile(), LoadReport.class);
+    }
+
+    public void write(Path path) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        MAPPER.writeValue(path.toFile(), this);
+    }
+
+    public Map<String, EndpointResult> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * Lists the endpoints whose p99 latency grew, or whose throughput fell, by more than
+     * {@code tolerance} relative to the baseline, and those that started failing requests.
+     */
+    public List<String> regressionsAgainst(LoadReport baseline, double tolerance) {
+        List<String> regressions = new ArrayList<>();
+        if (!baseline.mix.equals(mix) || baseline.users != users || !baseline.serverThreads.equals(serverThreads)) {
+            regressions.add("baseline was recorded with users=" + baseline.users + " mix=" + baseline.mix
+                    + " serverThreads=" + baseline.serverThreads + ", this run used users=" + users
+                    + " mix=" + mix + " serverThreads=" + serverThreads);
+        }
+        baseline.endpoints.forEach((endpoint, expected) -> {
+            EndpointResult actual = endpoints.get(endpoint);
+            if (actual == null || actual.getRequests() == 0) {
+                regressions.add(endpoint + ": no requests in this run");
+                return;
+            }
+            if (actual.getP99Millis() > expected.getP99Millis() * (1 + tolerance)) {
+                regressions.add(String.format("%s: p99 %.2f ms, baseline %.2f ms",
+                        endpoint, actual.getP99Millis(), expected.getP99Millis()));
+            }
+            if (actual.getThroughput() < expected.getThroughput() * (1 - tolerance)) {
+                regressions.add(String.format("%s: %.1f req/s, baseline %.1f req/s",
+                        endpoint, actual.getThroughput(), expected.getThroughput()));
+            }
+            if (actual.getErrorRate() > expected.getErrorRate() + 0.001) {
+                regressions.add(String.format("%s: error rate %.3f%%, baseline %.3f%%",
+                        endpoint, actual.getErrorRate() * 100, expected.getErrorRate() * 100));
+            }
+        });
+        return regressions;
+    }
+
+    public void print(PrintStream out) {
+        out.printf("%d users for %.0f s, mix %s, %s server threads%n", users, durationSeconds, mix, serverThreads);
+        out.printf("%-26s %9s %9s %8s %9s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "req/s", "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        endpoints.forEach((endpoint, result) -> out.printf("%-26s %9d %9.1f %7.2f%% %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                endpoint, result.getRequests(), result.getThroughput(), result.getErrorRate() * 100,
+                result.getP50Millis(), result.getP90Millis(), result.getP99Millis(), result.getP999Millis(),
+                result.getMaxMillis()));
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.demo.loadtest;
+
+import com.example.demo.SareetaApplication;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.threading.VirtualThreads;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * End-to-end load test: starts the application on a random port against its in-memory H2
+ * database and drives it over HTTP with {@code loadtest.users} concurrent {@link VirtualUser}s.
+ * After {@code loadtest.warmup} the per-endpoint statistics are reset and measured for
+ * {@code loadtest.duration}. The report is printed, written to {@code loadtest.report} and
+ * compared against the baseline at {@code loadtest.baseline}; the process exits with status 1
+ * if any endpoint regressed. With {@code -Dloadtest.write-baseline=true} the run replaces the
+ * baseline instead.
+ *
+ * <p>With {@code loadtest.virtual-threads} the application runs with the {@code virtual-threads}
+ * profile, which needs a Java 21 runtime ({@code -Dloadtest.java=/path/to/jdk-21/bin/java}).
+ *
+ * <p>Run with: {@code mvn -Ploadtest test-compile exec:exec [-Dloadtest.users=32]}
+ */
+public class LoadTest {
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.fromSystemProperties();
+        int status;
+        List<String> arguments = new ArrayList<>(Arrays.asList(
+                "--server.port=0", "--logging.config=classpath:log4j2-loadtest.xml"));
+        if (config.isVirtualThreads()) {
+            arguments.add("--spring.profiles.active=virtual-threads");
+        }
+        try (ServletWebServerApplicationContext context = (ServletWebServerApplicationContext) SpringApplication.run(
+                SareetaApplication.class, arguments.toArray(new String[0]))) {
+            URI base = URI.create("http://localhost:" + context.getWebServer().getPort());
+            List<Long> itemIds = context.getBean(ItemRepository.class).findAll().stream()
+                    .map(Item::getId)
+                    .collect(Collectors.toList());
+            status = report(config, run(config, base, itemIds));
+        }
+        System.exit(status);
+    }
+
+    private static LoadReport run(LoadTestConfig config, URI base, List<Long> itemIds) throws InterruptedException {
+        Map<Operation, EndpointStats> stats = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new EndpointStats());
+        }
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        long deadline = System.nanoTime() + config.getWarmup().toNanos() + config.getDuration().toNanos();
+
+        // thousands of blocking clients are cheap on virtual threads, where the JVM has them
+        ExecutorService users = VirtualThreads.newThreadPerTaskExecutor("loadtest-user-")
+                .orElseGet(() -> Executors.newFixedThreadPool(config.getUsers()));
+        SharedAccounts accounts = config.getAccounts() == 0 ? null : new SharedAccounts(config.getAccounts());
+        for (int i = 0; i < config.getUsers(); i++) {
+            users.execute(new VirtualUser(client, base, stats, config.getMix(), itemIds, deadline, i, accounts));
+        }
+        System.out.println("Warming up for " + config.getWarmup().getSeconds() + " s");
+        Thread.sleep(config.getWarmup().toMillis());
+        stats.values().forEach(EndpointStats::reset);
+        long measureStart = System.nanoTime();
+        System.out.println("Measuring for " + config.getDuration().getSeconds() + " s");
+        users.shutdown();
+        if (!users.awaitTermination(config.getDuration().toMillis() + 60_000, TimeUnit.MILLISECONDS)) {
+            users.shutdownNow();
+        }
+        double seconds = (System.nanoTime() - measureStart) / 1e9;
+
+        Map<String, EndpointResult> endpoints = new LinkedHashMap<>();
+        stats.forEach((operation, endpointStats) -> endpoints.put(operation.getEndpoint(), endpointStats.result(seconds)));
+        String mix = config.getMix().entrySet().stream()
+                .map(entry -> entry.getKey().getKey() + "=" + entry.getValue())
+                .collect(Collectors.joining(","));
+        return new LoadReport(config.getUsers(), seconds, mix,
+                config.isVirtualThreads() ? "virtual" : "platform", endpoints);
+    }
+
+    private static int report(LoadTestConfig config, LoadReport report) throws Exception {
+        report.print(System.out);
+        report.write(config.getReport());
+        System.out.println("Report written to " + config.getReport());
+
+        if (config.isWriteBaseline()) {
+            report.write(config.getBaseline());
+            System.out.println("Baseline written to " + config.getBaseline());
+            return 0;
+        }
+        if (!Files.exists(config.getBaseline())) {
+            System.out.println("No baseline at " + config.getBaseline() + "; run with -Dloadtest.write-baseline=true to record one");
+            return 0;
+        }
+        List<String> regressions = report.regressionsAgainst(LoadReport.read(config.getBaseline()), config.getTolerance());
+        if (regressions.isEmpty()) {
+            System.out.println("Within " + Math.round(config.getTolerance() * 100) + "% of baseline " + config.getBaseline());
+            return 0;
+        }
+        System.out.println("Regressions against baseline " + config.getBaseline() + ":");
+        regressions.forEach(regression -> System.out.println("  " + regression));
+        return 1;
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.demo.loadtest;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Load test settings, read from {@code loadtest.*} system properties.
+ */
+public class LoadTestConfig {
+    static final String DEFAULT_MIX = "item=50,addToCart=30,submit=10,login=7,create=3";
+
+    private final int users;
+    private final Duration warmup;
+    private final Duration duration;
+    private final Map<Operation, Integer> mix;
+    private final Path report;
+    private final Path baseline;
+    private final boolean writeBaseline;
+    private final double tolerance;
+    private final boolean virtualThreads;
+    private final int accounts;
+
+    LoadTestConfig(int users, Duration warmup, Duration duration, Map<Operation, Integer> mix,
+                   Path report, Path baseline, boolean writeBaseline, double tolerance,
+                   boolean virtualThreads, int accounts) {
+        if (users < 1) {
+            throw new IllegalArgumentException("loadtest.users must be at least 1");
+        }
+        if (accounts < 0) {
+            throw new IllegalArgumentException("loadtest.accounts must not be negative");
+        }
+        this.users = users;
+        this.warmup = warmup;
+        this.duration = duration;
+        this.mix = mix;
+        this.report = report;
+        this.baseline = baseline;
+        this.writeBaseline = writeBaseline;
+        this.tolerance = tolerance;
+        this.virtualThreads = virtualThreads;
+        this.accounts = accounts;
+    }
+
+    public static LoadTestConfig fromSystemProperties() {
+        return new LoadTestConfig(
+                Integer.getInteger("loadtest.users", 16),
+                Duration.parse(System.getProperty("loadtest.warmup", "PT10S")),
+                Duration.parse(System.getProperty("loadtest.duration", "PT30S")),
+                parseMix(System.getProperty("loadtest.mix", DEFAULT_MIX)),
+                Paths.get(System.getProperty("loadtest.report", "target/loadtest-report.json")),
+                Paths.get(System.getProperty("loadtest.baseline", "src/loadtest/baseline.json")),
+                Boolean.getBoolean("loadtest.write-baseline"),
+                Double.parseDouble(System.getProperty("loadtest.tolerance", "0.25")),
+                Boolean.getBoolean("loadtest.virtual-threads"),
+                Integer.getInteger("loadtest.accounts", 0));
+    }
+
+    /**
+     * Parses weights such as {@code item=40,submit=10}; operations left out are never chosen.
+     */
+    static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Expected name=weight in loadtest.mix, got '" + entry + "'");
+            }
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Negative weight in loadtest.mix: '" + entry + "'");
+            }
+            weights.put(Operation.forKey(parts[0].trim()), weight);
+        }
+        if (weights.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+            throw new IllegalArgumentException("loadtest.mix has no operation with a positive weight");
+        }
+        return weights;
+    }
+
+    public int getUsers() {
+        return users;
+    }
+
+    public Duration getWarmup() {
+        return warmup;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    public Map<Operation, Integer> getMix() {
+        return mix;
+    }
+
+    public Path getReport() {
+        return report;
+    }
+
+    public Path getBaseline() {
+        return baseline;
+    }
+
+    public boolean isWriteBaseline() {
+        return writeBaseline;
+    }
+
+    /**
+     * Fraction by which latency may grow, or throughput drop, before a result counts as a regression.
+     */
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    /**
+     * Whether the application serves requests on virtual threads (the {@code virtual-threads} profile).
+     */
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Number of accounts the virtual users share, or 0 for one account per user.
+     */
+    public int getAccounts() {
+        return accounts;
+    }
+}
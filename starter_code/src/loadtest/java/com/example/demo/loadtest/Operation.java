@@ -0,0 +1,37 @@
+package com.example.demo.loadtest;
+
+/**
+ * The requests a virtual user can make, keyed by the short names used in {@code loadtest.mix}.
+ */
+public enum Operation {
+    CREATE_USER("create", "POST /api/user/create"),
+    LOGIN("login", "POST /login"),
+    ADD_TO_CART("addToCart", "POST /api/cart/addToCart"),
+    SUBMIT_ORDER("submit", "POST /api/order/submit"),
+    LIST_ITEMS("item", "GET /api/item");
+
+    private final String key;
+    private final String endpoint;
+
+    Operation(String key, String endpoint) {
+        this.key = key;
+        this.endpoint = endpoint;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public static Operation forKey(String key) {
+        for (Operation operation : values()) {
+            if (operation.key.equals(key)) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("Unknown operation '" + key + "' in loadtest.mix");
+    }
+}
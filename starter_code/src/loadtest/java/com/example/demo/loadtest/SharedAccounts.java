@@ -0,0 +1,50 @@
+package com.example.demo.loadtest;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Lets many virtual users share a smaller number of accounts ({@code loadtest.accounts}), so a
+ * run with thousands of users does not spend its warm-up hashing a password for every one of
+ * them. The first user mapped to an account signs it up and logs in; the others reuse its token.
+ */
+class SharedAccounts {
+    private final int size;
+    private final ConcurrentMap<Integer, CompletableFuture<Account>> accounts = new ConcurrentHashMap<>();
+
+    SharedAccounts(int size) {
+        this.size = size;
+    }
+
+    /**
+     * Returns the account of virtual user {@code user}, establishing it with {@code establish}
+     * if no other user has yet.
+     */
+    Account get(int user, Supplier<Account> establish) {
+        CompletableFuture<Account> mine = new CompletableFuture<>();
+        CompletableFuture<Account> existing = accounts.putIfAbsent(user % size, mine);
+        if (existing != null) {
+            return existing.join();
+        }
+        try {
+            Account account = establish.get();
+            mine.complete(account);
+            return account;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    static final class Account {
+        final String username;
+        final String token;
+
+        Account(String username, String token) {
+            this.username = username;
+            this.token = token;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.demo.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One simulated shopper. It signs up and logs in (or takes over an account another user has
+ * established, see {@link SharedAccounts}), then keeps picking operations at random by
+ * their weight in the mix and issuing them back to back, without think time, until the run ends.
+ * Every response is timed and booked against its endpoint; anything but a 2xx is an error.
+ */
+class VirtualUser implements Runnable {
+    private static final String PASSWORD = "loadtest-password";
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+    private static final long RETRY_PAUSE_MILLIS = 100;
+
+    private final HttpClient client;
+    private final URI base;
+    private final Map<Operation, EndpointStats> stats;
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+    private final List<Long> itemIds;
+    private final long deadlineNanos;
+    private final int index;
+    private final SharedAccounts sharedAccounts;
+
+    private String username;
+    private String token;
+
+    VirtualUser(HttpClient client, URI base, Map<Operation, EndpointStats> stats, Map<Operation, Integer> mix,
+                List<Long> itemIds, long deadlineNanos, int index, SharedAccounts sharedAccounts) {
+        this.client = client;
+        this.base = base;
+        this.stats = stats;
+        this.itemIds = itemIds;
+        this.deadlineNanos = deadlineNanos;
+        this.index = index;
+        this.sharedAccounts = sharedAccounts;
+        this.operations = mix.keySet().toArray(new Operation[0]);
+        this.cumulativeWeights = new int[operations.length];
+        int total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += mix.get(operations[i]);
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    @Override
+    public void run() {
+        SharedAccounts.Account account = sharedAccounts == null ? establish() : sharedAccounts.get(index, this::establish);
+        if (account == null) {
+            return;
+        }
+        username = account.username;
+        token = account.token;
+        while (System.nanoTime() < deadlineNanos && !Thread.currentThread().isInterrupted()) {
+            Operation operation = next();
+            switch (operation) {
+                case CREATE_USER:
+                    // start over as a new shopper with an empty cart
+                    if (signUp()) {
+                        logIn();
+                    }
+                    break;
+                case LOGIN:
+                    logIn();
+                    break;
+                case ADD_TO_CART:
+                    long itemId = itemIds.get(ThreadLocalRandom.current().nextInt(itemIds.size()));
+                    send(operation, post("/api/cart/addToCart",
+                            "{\"username\":\"" + username + "\",\"itemId\":" + itemId + ",\"quantity\":1}"));
+                    break;
+                case SUBMIT_ORDER:
+                    send(operation, post("/api/order/submit/" + username, ""));
+                    break;
+                case LIST_ITEMS:
+                    send(operation, authorized(HttpRequest.newBuilder(base.resolve("/api/item")).GET()));
+                    break;
+                default:
+                    throw new IllegalStateException("Unhandled operation " + operation);
+            }
+        }
+    }
+
+    /**
+     * Signs up and logs in, retrying until both succeed.
+     *
+     * @return the new account, or {@code null} if the run ended first
+     */
+    private SharedAccounts.Account establish() {
+        while (token == null && System.nanoTime() < deadlineNanos) {
+            if (username == null) {
+                signUp();
+            }
+            if (username != null) {
+                logIn();
+            }
+            if (token == null && !backOff()) {
+                return null;
+            }
+        }
+        return token == null ? null : new SharedAccounts.Account(username, token);
+    }
+
+    /**
+     * Pauses before retrying a sign-up or login that the server turned away.
+     *
+     * @return false if interrupted
+     */
+    private boolean backOff() {
+        try {
+            Thread.sleep(RETRY_PAUSE_MILLIS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private Operation next() {
+        int pick = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (pick < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    /**
+     * Creates a new user and switches to it if that succeeded; otherwise keeps the current one.
+     */
+    private boolean signUp() {
+        String candidate = "loadtest-" + SEQUENCE.incrementAndGet();
+        HttpResponse<String> response = send(Operation.CREATE_USER, HttpRequest.newBuilder(base.resolve("/api/user/create"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"username\":\"" + candidate + "\",\"password\":\""
+                        + PASSWORD + "\",\"confirmPassword\":\"" + PASSWORD + "\"}"))
+                .build());
+        if (response == null || response.statusCode() / 100 != 2) {
+            return false;
+        }
+        username = candidate;
+        token = null;
+        return true;
+    }
+
+    private void logIn() {
+        HttpResponse<String> response = send(Operation.LOGIN, HttpRequest.newBuilder(base.resolve("/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"username\":\"" + username + "\",\"password\":\"" + PASSWORD + "\"}"))
+                .build());
+        if (response != null) {
+            response.headers().firstValue("Authorization").ifPresent(header -> token = header);
+        }
+    }
+
+    private HttpRequest post(String path, String json) {
+        return authorized(HttpRequest.newBuilder(base.resolve(path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json)));
+    }
+
+    private HttpRequest authorized(HttpRequest.Builder request) {
+        if (token != null) {
+            request.header("Authorization", token);
+        }
+        return request.build();
+    }
+
+    /**
+     * @return the response, or {@code null} if the request failed without one
+     */
+    private HttpResponse<String> send(Operation operation, HttpRequest request) {
+        long start = System.nanoTime();
+        try {
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            stats.get(operation).record(System.nanoTime() - start, response.statusCode() / 100 != 2);
+            return response;
+        } catch (IOException e) {
+            stats.get(operation).record(System.nanoTime() - start, true);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.demo.cache;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import java.net.URI;
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+/**
+ * Hibernate's second-level cache, kept in process by Caffeine behind the JCache API.
+ * <p>
+ * Every region is created here with its own size limit, and Hibernate is told to fail rather
+ * than create a region this class does not know about, so nothing is cached without a bound.
+ * Entity and query regions expire {@code entity.cache.time-to-live} after being written. Writes
+ * made through Hibernate invalidate them straight away: entity regions are read-write, and a
+ * cached query result is discarded once any table it read from has been written to since.
+ * Rows changed outside of Hibernate are only picked up once the entry expires.
+ */
+@Configuration
+public class SecondLevelCacheConfiguration {
+    public static final String ITEM_REGION = "entity.item";
+    public static final String USER_REGION = "entity.user";
+    public static final String ITEMS_BY_NAME_REGION = "query.itemsByName";
+    public static final String USER_BY_USERNAME_REGION = "query.userByUsername";
+
+    // one entry per table; if an entry were evicted, cached query results that read the table
+    // would be treated as current, so this region never expires and is sized well above the
+    // number of tables
+    private static final long TIMESTAMPS_MAXIMUM_SIZE = 1000;
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager(
+            @Value("${entity.cache.item.maximum-size:10000}") long itemMaximumSize,
+            @Value("${entity.cache.user.maximum-size:10000}") long userMaximumSize,
+            @Value("${entity.cache.query.maximum-size:10000}") long queryMaximumSize,
+            @Value("${entity.cache.time-to-live:PT10M}") Duration timeToLive) {
+        CachingProvider provider = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+        // a manager of its own per application context, so test contexts do not share regions
+        CacheManager cacheManager = provider.getCacheManager(
+                URI.create("hibernate-" + UUID.randomUUID()), getClass().getClassLoader());
+        cacheManager.createCache(ITEM_REGION, region(itemMaximumSize, timeToLive));
+        cacheManager.createCache(USER_REGION, region(userMaximumSize, timeToLive));
+        cacheManager.createCache(ITEMS_BY_NAME_REGION, region(queryMaximumSize, timeToLive));
+        cacheManager.createCache(USER_BY_USERNAME_REGION, region(queryMaximumSize, timeToLive));
+        // built by Hibernate whether or not any query uses it
+        cacheManager.createCache(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME,
+                region(queryMaximumSize, timeToLive));
+        cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME,
+                region(TIMESTAMPS_MAXIMUM_SIZE, null));
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> {
+            properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+
+    private static CaffeineConfiguration<Object, Object> region(long maximumSize, Duration timeToLive) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(OptionalLong.of(maximumSize));
+        if (timeToLive != null) {
+            configuration.setExpireAfterWrite(OptionalLong.of(timeToLive.toNanos()));
+        }
+        // Hibernate already stores disassembled copies, there is no need to serialize them again
+        configuration.setStoreByValue(false);
+        return configuration;
+    }
+}
@@ -1,69 +1,119 @@
 package com.example.demo.controllers;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.IntStream;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.example.demo.metrics.DomainMetrics;
 import com.example.demo.model.persistence.Cart;
 import com.example.demo.model.persistence.Item;
-import com.example.demo.model.persistence.User;
-import com.example.demo.model.persistence.repositories.CartRepository;
 import com.example.demo.model.persistence.repositories.ItemRepository;
-import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.requests.ModifyCartBatchRequest;
 import com.example.demo.model.requests.ModifyCartRequest;
+import com.example.demo.model.responses.CartResponse;
+import com.example.demo.service.CartConflictException;
+import com.example.demo.service.CartService;
 
 @RestController
 @RequestMapping("/api/cart")
 public class CartController {
 	
 	@Autowired
-	private UserRepository userRepository;
+	private ItemRepository itemRepository;
 	
 	@Autowired
-	private CartRepository cartRepository;
+	private CartService cartService;
 	
-	@Autowired
-	private ItemRepository itemRepository;
+	@GetMapping("/{username}")
+	public ResponseEntity<CartResponse> getCart(@PathVariable String username) {
+		return ResponseEntity.of(cartService.find(username));
+	}
 	
 	@PostMapping("/addToCart")
-	public ResponseEntity<Cart> addTocart(@RequestBody ModifyCartRequest request) {
-		User user = userRepository.findByUsername(request.getUsername());
-		if(user == null) {
-			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
-		}
+	public ResponseEntity<CartResponse> addTocart(@RequestBody ModifyCartRequest request) {
 		Optional<Item> item = itemRepository.findById(request.getItemId());
 		if(!item.isPresent()) {
 			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
 		}
-		Cart cart = user.getCart();
-		IntStream.range(0, request.getQuantity())
-			.forEach(i -> cart.addItem(item.get()));
-		cartRepository.save(cart);
-		return ResponseEntity.ok(cart);
+		return update(request.getUsername(), cart -> {
+			cart.addItem(item.get(), request.getQuantity());
+			return true;
+		});
 	}
 	
 	@PostMapping("/removeFromCart")
-	public ResponseEntity<Cart> removeFromcart(@RequestBody ModifyCartRequest request) {
-		User user = userRepository.findByUsername(request.getUsername());
-		if(user == null) {
-			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
-		}
+	public ResponseEntity<CartResponse> removeFromcart(@RequestBody ModifyCartRequest request) {
 		Optional<Item> item = itemRepository.findById(request.getItemId());
 		if(!item.isPresent()) {
 			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
 		}
-		Cart cart = user.getCart();
-		IntStream.range(0, request.getQuantity())
-			.forEach(i -> cart.removeItem(item.get()));
-		cartRepository.save(cart);
-		return ResponseEntity.ok(cart);
+		return update(request.getUsername(), cart -> {
+			cart.removeItem(item.get(), request.getQuantity());
+			return true;
+		});
+	}
+
+	/**
+	 * Applies a list of item quantity changes to the cart with one item lookup and a single flush.
+	 */
+	@PostMapping("/batch")
+	public ResponseEntity<CartResponse> applyBatch(@RequestBody ModifyCartBatchRequest request) {
+		List<ModifyCartBatchRequest.Operation> operations = request.getOperations();
+		if(operations == null || operations.isEmpty()) {
+			return ResponseEntity.badRequest().build();
+		}
+		Set<Long> itemIds = operations.stream()
+			.map(ModifyCartBatchRequest.Operation::getItemId)
+			.collect(Collectors.toSet());
+		// looked up once the cart is known to exist, and only once however often the update is retried
+		Map<Long, Item> items = new HashMap<>();
+		return update(request.getUsername(), cart -> {
+			if(items.isEmpty()) {
+				for(Item item : itemRepository.findAllById(itemIds)) {
+					items.put(item.getId(), item);
+				}
+			}
+			if(items.size() != itemIds.size()) {
+				return false;
+			}
+			for(ModifyCartBatchRequest.Operation operation : operations) {
+				Item item = items.get(operation.getItemId());
+				if(operation.getDelta() > 0) {
+					cart.addItem(item, operation.getDelta());
+				} else {
+					cart.removeItem(item, -operation.getDelta());
+				}
+			}
+			return true;
+		});
+	}
+	
+	private ResponseEntity<CartResponse> update(String username, Predicate<Cart> change) {
+		Optional<Cart> cart;
+		try {
+			cart = cartService.update(username, change);
+		} catch (CartConflictException e) {
+			return ResponseEntity.status(HttpStatus.CONFLICT).build();
+		}
+		if(!cart.isPresent()) {
+			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+		}
+		DomainMetrics.recordCart(cart.get());
+		return ResponseEntity.ok(CartResponse.of(cart.get()));
 	}
 		
 }
@@ -7,31 +7,42 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-import com.example.demo.model.persistence.Item;
-import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.model.responses.ItemResponse;
+import com.example.demo.service.ItemCatalogService;
+import com.example.demo.service.ItemSearchIndex;
 
 @RestController
 @RequestMapping("/api/item")
 public class ItemController {
 
 	@Autowired
-	private ItemRepository itemRepository;
+	private ItemCatalogService itemCatalogService;
 	
 	@GetMapping
-	public ResponseEntity<List<Item>> getItems() {
-		return ResponseEntity.ok(itemRepository.findAll());
+	public ResponseEntity<List<ItemResponse>> getItems() {
+		return ResponseEntity.ok(itemCatalogService.findAll());
 	}
 	
 	@GetMapping("/{id}")
-	public ResponseEntity<Item> getItemById(@PathVariable Long id) {
-		return ResponseEntity.of(itemRepository.findById(id));
+	public ResponseEntity<ItemResponse> getItemById(@PathVariable Long id) {
+		return ResponseEntity.of(itemCatalogService.findById(id));
+	}
+	
+	@GetMapping("/search")
+	public ResponseEntity<List<ItemResponse>> searchItems(@RequestParam("q") String query,
+			@RequestParam(defaultValue = "" + ItemSearchIndex.DEFAULT_LIMIT) int limit) {
+		if(query.trim().isEmpty() || limit < 1) {
+			return ResponseEntity.badRequest().build();
+		}
+		return ResponseEntity.ok(itemCatalogService.search(query, limit));
 	}
 	
 	@GetMapping("/name/{name}")
-	public ResponseEntity<List<Item>> getItemsByName(@PathVariable String name) {
-		List<Item> items = itemRepository.findByName(name);
+	public ResponseEntity<List<ItemResponse>> getItemsByName(@PathVariable String name) {
+		List<ItemResponse> items = itemCatalogService.findByName(name);
 		return items == null || items.isEmpty() ? ResponseEntity.notFound().build()
 				: ResponseEntity.ok(items);
 			
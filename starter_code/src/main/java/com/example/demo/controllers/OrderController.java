@@ -1,23 +1,38 @@
 package com.example.demo.controllers;
 
+import java.net.URI;
 import java.util.List;
+import java.util.Optional;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.example.demo.metrics.DomainMetrics;
 import com.example.demo.model.persistence.Cart;
 import com.example.demo.model.persistence.User;
 import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.persistence.UserOrderSummary;
 import com.example.demo.model.persistence.repositories.CartRepository;
-import com.example.demo.model.persistence.repositories.OrderRepository;
 import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.responses.OrderHistoryPage;
+import com.example.demo.model.responses.OrderReceipt;
+import com.example.demo.model.responses.OrderResponse;
+import com.example.demo.security.AuthenticatedUser;
+import com.example.demo.service.OrderHistoryService;
+import com.example.demo.service.OrderIngestionService;
+import com.example.demo.service.OrderSummaryService;
 
 @RestController
 @RequestMapping("/api/order")
@@ -28,32 +43,137 @@ public class OrderController {
     private UserRepository userRepository;
 
     @Autowired
-    private OrderRepository orderRepository;
+    private CartRepository cartRepository;
 
+    @Autowired
+    private OrderHistoryService orderHistoryService;
+
+    @Autowired
+    private OrderIngestionService orderIngestionService;
+
+    @Autowired
+    private OrderSummaryService orderSummaryService;
+
+    /**
+     * Resolves {@code username} to a user id, taken from the caller's token when it carries one
+     * and otherwise selected on its own, without loading the user.
+     */
+    private Long findUserId(String username) {
+        Optional<AuthenticatedUser> principal = AuthenticatedUser.current(username);
+        if (principal.isPresent()) {
+            return principal.get().getUserId();
+        }
+        return userRepository.findIdByUsername(username);
+    }
+
+    /**
+     * Loads the cart of {@code username} with its lines and their items in one query.
+     */
+    private Cart findCart(String username) {
+        Optional<AuthenticatedUser> principal = AuthenticatedUser.current(username);
+        if (principal.isPresent()) {
+            return cartRepository.findWithLinesById(principal.get().getCartId()).orElse(null);
+        }
+        User user = userRepository.findWithCartByUsername(username);
+        return user == null ? null : user.getCart();
+    }
 
     @PostMapping("/submit/{username}")
-    public ResponseEntity<UserOrder> submit(@PathVariable String username) {
-        User user = userRepository.findByUsername(username);
-        if (user == null) {
+    public ResponseEntity<OrderResponse> submit(@PathVariable String username) {
+        Cart cart = findCart(username);
+        if (cart == null) {
             log.info("User not found when submit, username: " + username);
             return ResponseEntity.notFound().build();
         }
-        UserOrder order = UserOrder.createFromCart(user.getCart());
-        orderRepository.save(order);
+        UserOrder order = UserOrder.createFromCart(cart);
+        orderSummaryService.place(order);
+        DomainMetrics.recordOrder(order);
 
         log.info("Save order successfully with username: " + username);
-        return ResponseEntity.ok(order);
+        return ResponseEntity.ok(OrderResponse.of(order));
+    }
+
+    /**
+     * Accepts an order for asynchronous storage and answers with its reference right away. The
+     * stored order's id is available from {@link #getOrderStatus(String)} once it has been written.
+     */
+    @PostMapping("/enqueue/{username}")
+    public ResponseEntity<OrderReceipt> enqueue(@PathVariable String username) {
+        Cart cart = findCart(username);
+        if (cart == null) {
+            log.info("User not found when enqueue order, username: " + username);
+            return ResponseEntity.notFound().build();
+        }
+        Optional<OrderReceipt> receipt = orderIngestionService.enqueue(cart);
+        if (!receipt.isPresent()) {
+            log.warn("Order queue full, rejecting order for username: " + username);
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .build();
+        }
+
+        log.info("Queued order " + receipt.get().getReference() + " for username: " + username);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/order/status/" + receipt.get().getReference()))
+                .body(receipt.get());
+    }
+
+    @GetMapping("/status/{reference}")
+    public ResponseEntity<OrderReceipt> getOrderStatus(@PathVariable String reference) {
+        return ResponseEntity.of(orderIngestionService.status(reference));
     }
 
     @GetMapping("/history/{username}")
-    public ResponseEntity<List<UserOrder>> getOrdersForUser(@PathVariable String username) {
-        User user = userRepository.findByUsername(username);
-        if (user == null) {
+    public ResponseEntity<List<OrderResponse>> getOrdersForUser(@PathVariable String username) {
+        Long userId = findUserId(username);
+        if (userId == null) {
             log.error("User not found when get order, username: " + username);
             return ResponseEntity.notFound().build();
         }
 
         log.info("Get order successfully for username: " + username);
-        return ResponseEntity.ok(orderRepository.findByUser(user));
+        return ResponseEntity.ok(orderHistoryService.all(userId));
+    }
+
+    /**
+     * Order count, lifetime spend and latest order of the user, read from the summary that is
+     * kept up to date as orders are stored.
+     */
+    @GetMapping("/summary/{username}")
+    public ResponseEntity<UserOrderSummary> getOrderSummaryForUser(@PathVariable String username) {
+        Long userId = findUserId(username);
+        if (userId == null) {
+            log.error("User not found when get order summary, username: " + username);
+            return ResponseEntity.notFound().build();
+        }
+
+        return ResponseEntity.ok(orderSummaryService.find(userId));
+    }
+
+    @GetMapping("/history/{username}/page")
+    public ResponseEntity<OrderHistoryPage> getOrderPageForUser(@PathVariable String username,
+                                                                @RequestParam(required = false) Long after,
+                                                                @RequestParam(defaultValue = "" + OrderHistoryService.DEFAULT_PAGE_SIZE) int size) {
+        Long userId = findUserId(username);
+        if (userId == null) {
+            log.error("User not found when get order page, username: " + username);
+            return ResponseEntity.notFound().build();
+        }
+
+        return ResponseEntity.ok(orderHistoryService.page(userId, after, size));
+    }
+
+    @GetMapping("/history/{username}/stream")
+    public ResponseEntity<StreamingResponseBody> streamOrdersForUser(@PathVariable String username) {
+        Long userId = findUserId(username);
+        if (userId == null) {
+            log.error("User not found when stream order, username: " + username);
+            return ResponseEntity.notFound().build();
+        }
+
+        log.info("Stream order history for username: " + username);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(out -> orderHistoryService.stream(userId, out));
     }
 }
@@ -3,8 +3,10 @@ package com.example.demo.controllers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -17,6 +19,8 @@ import com.example.demo.model.persistence.User;
 import com.example.demo.model.persistence.repositories.CartRepository;
 import com.example.demo.model.persistence.repositories.UserRepository;
 import com.example.demo.model.requests.CreateUserRequest;
+import com.example.demo.security.PasswordEncoderBusyException;
+import com.example.demo.security.SecurityConstants;
 
 @RestController
 @RequestMapping("/api/user")
@@ -30,7 +34,7 @@ public class UserController {
     private CartRepository cartRepository;
 
     @Autowired
-    private BCryptPasswordEncoder bCryptPasswordEncoder;
+    private PasswordEncoder bCryptPasswordEncoder;
 
     @GetMapping("/id/{id}")
     public ResponseEntity<User> findById(@PathVariable Long id) {
@@ -54,9 +58,6 @@ public class UserController {
     public ResponseEntity<User> createUser(@RequestBody CreateUserRequest createUserRequest) {
         User user = new User();
         user.setUsername(createUserRequest.getUsername());
-        Cart cart = new Cart();
-        cartRepository.save(cart);
-        user.setCart(cart);
 
         //validate password
         if (createUserRequest.getPassword().length() < 7
@@ -66,7 +67,19 @@ public class UserController {
         }
 
         //hash password
-        user.setPassword(bCryptPasswordEncoder.encode(createUserRequest.getPassword()));
+        try {
+            user.setPassword(bCryptPasswordEncoder.encode(createUserRequest.getPassword()));
+        } catch (PasswordEncoderBusyException e) {
+            log.warn("Password hashing busy, rejecting sign up: " + createUserRequest.getUsername());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, SecurityConstants.BUSY_RETRY_AFTER_SECONDS)
+                    .build();
+        }
+
+        //only a sign up that got this far gets a cart
+        Cart cart = new Cart();
+        cartRepository.save(cart);
+        user.setCart(cart);
         userRepository.save(user);
 
         //log info
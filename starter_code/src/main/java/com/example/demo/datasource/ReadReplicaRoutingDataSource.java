@@ -0,0 +1,89 @@
+package com.example.demo.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hands out replica connections to read-only transactions and primary connections to everything
+ * else. When the {@link ReplicaLagMonitor} reports the replica as too far behind, or its lag is
+ * unknown, read-only transactions fall back to the primary as well.
+ *
+ * <p>The routing decision reads the current transaction's read-only flag, which Spring only sets
+ * after the transaction manager has asked for a connection. It must therefore sit behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}, which asks this data
+ * source for the real connection when the first statement runs.
+ */
+public class ReadReplicaRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    public enum Route {
+        PRIMARY, REPLICA, FALLBACK
+    }
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final ReplicaLagMonitor monitor;
+    private final Map<Route, LongAdder> routed = new HashMap<>();
+
+    public ReadReplicaRoutingDataSource(DataSource primary, DataSource replica, ReplicaLagMonitor monitor) {
+        this.primary = primary;
+        this.replica = replica;
+        this.monitor = monitor;
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(Route.PRIMARY, primary);
+        targets.put(Route.REPLICA, replica);
+        targets.put(Route.FALLBACK, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        for (Route route : Route.values()) {
+            routed.put(route, new LongAdder());
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Route route;
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            route = Route.PRIMARY;
+        } else if (monitor.isReplicaUsable()) {
+            route = Route.REPLICA;
+        } else {
+            route = Route.FALLBACK;
+        }
+        routed.get(route).increment();
+        return route;
+    }
+
+    /**
+     * Number of connections handed out along {@code route}; {@link Route#FALLBACK} counts
+     * read-only transactions that were sent to the primary because of the replica's lag.
+     */
+    public long getRoutedCount(Route route) {
+        return routed.get(route).sum();
+    }
+
+    public DataSource getReplica() {
+        return replica;
+    }
+
+    public ReplicaLagMonitor getMonitor() {
+        return monitor;
+    }
+
+    /**
+     * Stops the lag monitor and closes both pools.
+     */
+    @Override
+    public void close() throws Exception {
+        monitor.close();
+        for (DataSource pool : new DataSource[] {replica, primary}) {
+            if (pool instanceof AutoCloseable) {
+                ((AutoCloseable) pool).close();
+            }
+        }
+    }
+}
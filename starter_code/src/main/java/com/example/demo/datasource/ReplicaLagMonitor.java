@@ -0,0 +1,125 @@
+package com.example.demo.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how far the replica is behind the primary. Every heartbeat interval it writes the
+ * current time into a one-row table on the primary and reads the row back from the replica; the
+ * difference between now and the time the replica holds is the replication lag, to within one
+ * interval.
+ *
+ * <p>The replica counts as usable only while the last measurement is at most the allowed lag.
+ * Until the first measurement, and whenever the replica cannot be read or has no heartbeat yet,
+ * the lag is unknown and the replica is not used.
+ */
+public class ReplicaLagMonitor implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+    static final String TABLE = "replication_heartbeat";
+    static final long UNKNOWN = -1;
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final long maxLagMillis;
+    private final long intervalMillis;
+    private final ScheduledExecutorService executor;
+
+    private volatile long lagMillis = UNKNOWN;
+
+    public ReplicaLagMonitor(DataSource primary, DataSource replica, Duration maxLag, Duration heartbeatInterval) {
+        this.primary = primary;
+        this.replica = replica;
+        this.maxLagMillis = maxLag.toMillis();
+        this.intervalMillis = heartbeatInterval.toMillis();
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-lag-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void start() {
+        try (Connection connection = primary.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("create table if not exists " + TABLE
+                    + " (id int primary key, beat_millis bigint not null)");
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not create the replication heartbeat table", e);
+        }
+        check();
+        executor.scheduleWithFixedDelay(this::check, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Writes a heartbeat to the primary and measures the lag against the replica's copy of it.
+     */
+    public void check() {
+        long now = System.currentTimeMillis();
+        try {
+            beat(now);
+        } catch (SQLException e) {
+            log.warn("Could not write the replication heartbeat", e);
+        }
+        try {
+            Long replicated = replicatedBeat();
+            lagMillis = replicated == null ? UNKNOWN : Math.max(0, now - replicated);
+        } catch (SQLException e) {
+            if (lagMillis != UNKNOWN) {
+                log.warn("Could not read the replication heartbeat from the replica, reading from the primary", e);
+            }
+            lagMillis = UNKNOWN;
+        }
+    }
+
+    private void beat(long now) throws SQLException {
+        try (Connection connection = primary.getConnection()) {
+            try (PreparedStatement update = connection.prepareStatement(
+                    "update " + TABLE + " set beat_millis = ? where id = 1")) {
+                update.setLong(1, now);
+                if (update.executeUpdate() > 0) {
+                    return;
+                }
+            }
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "insert into " + TABLE + " (id, beat_millis) values (1, ?)")) {
+                insert.setLong(1, now);
+                insert.executeUpdate();
+            }
+        }
+    }
+
+    private Long replicatedBeat() throws SQLException {
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet row = statement.executeQuery("select beat_millis from " + TABLE + " where id = 1")) {
+            return row.next() ? row.getLong(1) : null;
+        }
+    }
+
+    public boolean isReplicaUsable() {
+        long lag = lagMillis;
+        return lag != UNKNOWN && lag <= maxLagMillis;
+    }
+
+    /**
+     * The last measured lag, or -1 if it is unknown.
+     */
+    public long getLagMillis() {
+        return lagMillis;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.demo.datasource;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Opt-in read replica ({@code spring.datasource.replica.url}). The application's data source then
+ * routes read-only transactions, such as the catalog and order history reads and Spring Data's
+ * own {@code find*} methods, to a pool of replica connections and all other work, including
+ * queries run outside a transaction, to the primary pool configured by {@code spring.datasource}.
+ * Both pools take their settings from {@code spring.datasource.hikari} and
+ * {@code spring.datasource.replica.hikari} respectively.
+ *
+ * <p>Reads fall back to the primary while the replica is more than
+ * {@code spring.datasource.replica.max-lag} behind, as measured every
+ * {@code spring.datasource.replica.heartbeat-interval} by {@link ReplicaLagMonitor}. Within that
+ * bound a read straight after a write may not see it yet.
+ *
+ * <p>Only the routing data source is a bean: Spring Boot runs its schema and data scripts as soon
+ * as any data source bean is created, and would ask for the routing one while it is still being
+ * built from the pools. {@link ReadReplicaRoutingDataSource} is reached with
+ * {@link DataSource#unwrap(Class)}; Spring Boot's pool metrics find the primary pool that way, and
+ * {@link com.example.demo.metrics.MetricsConfiguration} adds the replica pool.
+ *
+ * <p>Hibernate sessions give their connection back at the end of each transaction instead of
+ * holding it until they close. The session opened for a whole web request would otherwise keep
+ * whichever pool its first statement was routed to for every later transaction of the request.
+ */
+@Configuration
+@ConditionalOnProperty(name = "spring.datasource.replica.url")
+public class ReplicaRoutingConfiguration {
+    private ReadReplicaRoutingDataSource routingDataSource;
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariConfig primaryPoolConfig(DataSourceProperties properties) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("primary");
+        config.setDriverClassName(properties.determineDriverClassName());
+        config.setJdbcUrl(properties.determineUrl());
+        config.setUsername(properties.determineUsername());
+        config.setPassword(properties.determinePassword());
+        return config;
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.replica.hikari")
+    public HikariConfig replicaPoolConfig(DataSourceProperties properties,
+                                          @Value("${spring.datasource.replica.url}") String url,
+                                          @Value("${spring.datasource.replica.username:${spring.datasource.username:}}") String username,
+                                          @Value("${spring.datasource.replica.password:${spring.datasource.password:}}") String password) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("replica");
+        config.setDriverClassName(properties.determineDriverClassName());
+        config.setJdbcUrl(url);
+        config.setUsername(username);
+        config.setPassword(password);
+        config.setReadOnly(true);
+        return config;
+    }
+
+    @Bean
+    public DataSource dataSource(@Qualifier("primaryPoolConfig") HikariConfig primaryPoolConfig,
+                                 @Qualifier("replicaPoolConfig") HikariConfig replicaPoolConfig,
+                                 @Value("${spring.datasource.replica.max-lag:PT5S}") Duration maxLag,
+                                 @Value("${spring.datasource.replica.heartbeat-interval:PT1S}") Duration heartbeatInterval) {
+        HikariDataSource primary = new HikariDataSource(primaryPoolConfig);
+        HikariDataSource replica = new HikariDataSource(replicaPoolConfig);
+        ReplicaLagMonitor monitor = new ReplicaLagMonitor(primary, replica, maxLag, heartbeatInterval);
+        routingDataSource = new ReadReplicaRoutingDataSource(primary, replica, monitor);
+        routingDataSource.afterPropertiesSet();
+        monitor.start();
+        // the transaction's read-only flag is only set after its connection has been asked for,
+        // so the routing decision waits for the first statement
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer connectionPerTransactionCustomizer() {
+        return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+
+    @PreDestroy
+    public void shutdown() throws Exception {
+        if (routingDataSource != null) {
+            routingDataSource.close();
+        }
+    }
+}
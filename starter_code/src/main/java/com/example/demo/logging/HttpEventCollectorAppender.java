@@ -0,0 +1,282 @@
+package com.example.demo.logging;
+
+import org.apache.logging.log4j.core.Appender;
+import org.apache.logging.log4j.core.Core;
+import org.apache.logging.log4j.core.Filter;
+import org.apache.logging.log4j.core.Layout;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.appender.AbstractAppender;
+import org.apache.logging.log4j.core.config.Property;
+import org.apache.logging.log4j.core.config.plugins.Plugin;
+import org.apache.logging.log4j.core.config.plugins.PluginAttribute;
+import org.apache.logging.log4j.core.config.plugins.PluginElement;
+import org.apache.logging.log4j.core.config.plugins.PluginFactory;
+import org.apache.logging.log4j.core.layout.PatternLayout;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ships log events to a Splunk HTTP Event Collector without putting the HTTP call on the
+ * logging thread.
+ * <p>
+ * {@link #append(LogEvent)} only formats the event and offers it to a bounded buffer. A single
+ * daemon thread drains the buffer and posts events to the collector's raw endpoint in batches of
+ * up to {@code batchSize} events, or whatever has accumulated after {@code batchIntervalMillis}.
+ * When the buffer is full the {@code overflowPolicy} decides what happens: {@code DROP} discards
+ * the event immediately, {@code BLOCK} waits up to {@code blockTimeoutMillis} for space before
+ * discarding it. Batches the collector rejects are retried {@code retries} times and then counted
+ * as failed.
+ */
+@Plugin(name = "BatchingSplunkHttp", category = Core.CATEGORY_NAME, elementType = Appender.ELEMENT_TYPE, printObject = true)
+public final class HttpEventCollectorAppender extends AbstractAppender {
+
+    public enum OverflowPolicy {
+        DROP, BLOCK
+    }
+
+    private final URL endpoint;
+    private final String token;
+    private final int batchSize;
+    private final long batchIntervalMillis;
+    private final OverflowPolicy overflowPolicy;
+    private final long blockTimeoutMillis;
+    private final int retries;
+    private final int timeoutMillis;
+    private final BlockingQueue<String> buffer;
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    private volatile boolean running;
+    private Thread sender;
+
+    HttpEventCollectorAppender(String name, Filter filter, Layout<? extends Serializable> layout, URL endpoint,
+                               String token, int bufferSize, int batchSize, long batchIntervalMillis,
+                               OverflowPolicy overflowPolicy, long blockTimeoutMillis, int retries, int timeoutMillis) {
+        super(name, filter, layout, true, Property.EMPTY_ARRAY);
+        this.endpoint = endpoint;
+        this.token = token;
+        this.batchSize = batchSize;
+        this.batchIntervalMillis = batchIntervalMillis;
+        this.overflowPolicy = overflowPolicy;
+        this.blockTimeoutMillis = blockTimeoutMillis;
+        this.retries = retries;
+        this.timeoutMillis = timeoutMillis;
+        this.buffer = new ArrayBlockingQueue<>(bufferSize);
+    }
+
+    @PluginFactory
+    public static HttpEventCollectorAppender createAppender(
+            @PluginAttribute("name") String name,
+            @PluginAttribute("url") String url,
+            @PluginAttribute("token") String token,
+            @PluginAttribute("host") String host,
+            @PluginAttribute("index") String index,
+            @PluginAttribute("source") String source,
+            @PluginAttribute("sourcetype") String sourcetype,
+            @PluginAttribute(value = "bufferSize", defaultInt = 8192) int bufferSize,
+            @PluginAttribute(value = "batchSize", defaultInt = 100) int batchSize,
+            @PluginAttribute(value = "batchIntervalMillis", defaultLong = 1000) long batchIntervalMillis,
+            @PluginAttribute(value = "overflowPolicy", defaultString = "DROP") String overflowPolicy,
+            @PluginAttribute(value = "blockTimeoutMillis", defaultLong = 100) long blockTimeoutMillis,
+            @PluginAttribute(value = "retries", defaultInt = 2) int retries,
+            @PluginAttribute(value = "timeoutMillis", defaultInt = 5000) int timeoutMillis,
+            @PluginElement("Layout") Layout<? extends Serializable> layout,
+            @PluginElement("Filter") Filter filter) {
+        if (name == null || url == null || token == null) {
+            LOGGER.error("BatchingSplunkHttp appender requires name, url and token");
+            return null;
+        }
+        try {
+            URL endpoint = new URL(url.replaceAll("/+$", "") + "/services/collector/raw"
+                    + query("host", host, "index", index, "source", source, "sourcetype", sourcetype));
+            return new HttpEventCollectorAppender(name, filter,
+                    layout == null ? PatternLayout.newBuilder().withPattern("%m").build() : layout,
+                    endpoint, token, bufferSize, Math.max(1, batchSize), batchIntervalMillis,
+                    OverflowPolicy.valueOf(overflowPolicy.toUpperCase()), blockTimeoutMillis, retries, timeoutMillis);
+        } catch (IOException | IllegalArgumentException e) {
+            LOGGER.error("Invalid configuration for BatchingSplunkHttp appender " + name, e);
+            return null;
+        }
+    }
+
+    private static String query(String... pairs) throws UnsupportedEncodingException {
+        StringBuilder query = new StringBuilder();
+        for (int i = 0; i < pairs.length; i += 2) {
+            if (pairs[i + 1] != null) {
+                query.append(query.length() == 0 ? '?' : '&')
+                        .append(pairs[i]).append('=')
+                        .append(URLEncoder.encode(pairs[i + 1], StandardCharsets.UTF_8.name()));
+            }
+        }
+        return query.toString();
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        sender = new Thread(this::drain, "splunk-hec-" + getName());
+        sender.setDaemon(true);
+        sender.start();
+        super.start();
+    }
+
+    @Override
+    public boolean stop(long timeout, TimeUnit timeUnit) {
+        setStopping();
+        running = false;
+        if (sender != null) {
+            sender.interrupt();
+            try {
+                sender.join(timeUnit.toMillis(timeout));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        setStopped();
+        return true;
+    }
+
+    @Override
+    public void append(LogEvent event) {
+        String message = new String(getLayout().toByteArray(event), StandardCharsets.UTF_8);
+        boolean accepted = buffer.offer(message);
+        if (!accepted && overflowPolicy == OverflowPolicy.BLOCK) {
+            try {
+                accepted = buffer.offer(message, blockTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (accepted) {
+            enqueued.incrementAndGet();
+        } else {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private void drain() {
+        List<String> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                String first = buffer.poll(batchIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.currentTimeMillis() + batchIntervalMillis;
+                while (batch.size() < batchSize) {
+                    buffer.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    String next = buffer.poll(remaining, TimeUnit.MILLISECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                send(batch);
+            } catch (InterruptedException e) {
+                // stop() was called; flush what is left below
+            }
+        }
+        buffer.drainTo(batch);
+        while (!batch.isEmpty()) {
+            List<String> chunk = batch.subList(0, Math.min(batchSize, batch.size()));
+            send(chunk);
+        }
+    }
+
+    /**
+     * Posts the batch and clears it, whatever the outcome.
+     */
+    private void send(List<String> batch) {
+        byte[] body = String.join("\n", batch).getBytes(StandardCharsets.UTF_8);
+        for (int attempt = 0; attempt <= retries; attempt++) {
+            try {
+                if (post(body)) {
+                    sent.addAndGet(batch.size());
+                    batch.clear();
+                    return;
+                }
+            } catch (IOException e) {
+                LOGGER.debug("Failed to send {} events to {}: {}", batch.size(), endpoint, e.toString());
+            }
+        }
+        LOGGER.warn("Giving up on {} events for {} after {} attempts", batch.size(), endpoint, retries + 1);
+        failed.addAndGet(batch.size());
+        batch.clear();
+    }
+
+    private boolean post(byte[] body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) endpoint.openConnection();
+        try {
+            connection.setRequestMethod("POST");
+            connection.setConnectTimeout(timeoutMillis);
+            connection.setReadTimeout(timeoutMillis);
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(body.length);
+            connection.setRequestProperty("Authorization", "Splunk " + token);
+            connection.setRequestProperty("Content-Type", "text/plain; charset=utf-8");
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body);
+            }
+            int status = connection.getResponseCode();
+            return status >= 200 && status < 300;
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Events accepted into the buffer since startup.
+     */
+    public long getEnqueuedCount() {
+        return enqueued.get();
+    }
+
+    /**
+     * Events currently waiting in the buffer.
+     */
+    public int getQueueDepth() {
+        return buffer.size();
+    }
+
+    /**
+     * Events the collector acknowledged with a 2xx response.
+     */
+    public long getSentCount() {
+        return sent.get();
+    }
+
+    /**
+     * Events discarded because the buffer was full.
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Events discarded after every delivery attempt failed.
+     */
+    public long getFailedCount() {
+        return failed.get();
+    }
+}
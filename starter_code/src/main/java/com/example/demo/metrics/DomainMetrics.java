@@ -0,0 +1,30 @@
+package com.example.demo.metrics;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.UserOrder;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Metrics;
+
+/**
+ * Size distributions of carts and orders, recorded by the controllers as they are saved.
+ */
+public final class DomainMetrics {
+    private DomainMetrics() {
+    }
+
+    public static void recordCart(Cart cart) {
+        DistributionSummary.builder("cart.lines")
+                .description("Distinct items in a cart after it was modified")
+                .baseUnit("lines")
+                .register(Metrics.globalRegistry)
+                .record(cart.getLines().size());
+    }
+
+    public static void recordOrder(UserOrder order) {
+        DistributionSummary.builder("order.items")
+                .description("Units in a submitted order")
+                .baseUnit("items")
+                .register(Metrics.globalRegistry)
+                .record(order.getItemCount());
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.demo.metrics;
+
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.boot.actuate.metrics.web.servlet.DefaultWebMvcTagsProvider;
+import org.springframework.web.method.HandlerMethod;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Adds a {@code handler} tag naming the controller method (e.g. {@code OrderController.submit})
+ * to the default {@code http.server.requests} tags, so latencies can be read per method rather
+ * than per URI template.
+ */
+public class HandlerMethodTagsProvider extends DefaultWebMvcTagsProvider {
+    private static final Tag NO_HANDLER = Tag.of("handler", "none");
+
+    @Override
+    public Iterable<Tag> getTags(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                 Throwable exception) {
+        return Tags.of(super.getTags(request, response, handler, exception)).and(handler(handler));
+    }
+
+    @Override
+    public Iterable<Tag> getLongRequestTags(HttpServletRequest request, Object handler) {
+        return Tags.of(super.getLongRequestTags(request, handler)).and(handler(handler));
+    }
+
+    private static Tag handler(Object handler) {
+        if (!(handler instanceof HandlerMethod)) {
+            return NO_HANDLER;
+        }
+        HandlerMethod method = (HandlerMethod) handler;
+        return Tag.of("handler", method.getBeanType().getSimpleName() + "." + method.getMethod().getName());
+    }
+}
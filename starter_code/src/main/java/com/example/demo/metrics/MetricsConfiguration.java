@@ -0,0 +1,244 @@
+package com.example.demo.metrics;
+
+import com.example.demo.datasource.ReadReplicaRoutingDataSource;
+import com.example.demo.datasource.ReplicaLagMonitor;
+import com.example.demo.logging.HttpEventCollectorAppender;
+import com.example.demo.outbox.OrderOutboxPublisher;
+import com.example.demo.security.BoundedPasswordEncoder;
+import com.example.demo.security.JWTTokenVerifier;
+import com.example.demo.service.ItemCatalogService;
+import com.example.demo.service.OrderIngestionService;
+import com.example.demo.sharding.OrderShardRouter;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.Appender;
+import org.apache.logging.log4j.core.LoggerContext;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.metrics.web.servlet.WebMvcTagsProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.function.Function;
+
+/**
+ * Exposes the application's own caches, queues and pools next to the metrics Spring Boot
+ * already records for HTTP requests, Hibernate, the connection pool and the JVM.
+ */
+@Configuration
+public class MetricsConfiguration {
+
+    @Bean
+    public WebMvcTagsProvider handlerMethodTagsProvider() {
+        return new HandlerMethodTagsProvider();
+    }
+
+    @Bean
+    public MeterBinder tokenCacheMetrics(JWTTokenVerifier tokenVerifier) {
+        return registry -> bindCacheStats(registry, "jwt.tokens", tokenVerifier, JWTTokenVerifier::stats);
+    }
+
+    @Bean
+    public MeterBinder catalogCacheMetrics(ItemCatalogService itemCatalogService) {
+        return registry -> itemCatalogService.stats().keySet().forEach(name ->
+                bindCacheStats(registry, name, itemCatalogService, service -> service.stats().get(name)));
+    }
+
+    /**
+     * Hit, miss and put counts per second-level cache region come from Hibernate's statistics,
+     * the number of entries held from the region itself.
+     */
+    @Bean
+    public MeterBinder secondLevelCacheMetrics(EntityManagerFactory entityManagerFactory,
+                                               CacheManager hibernateCacheManager) {
+        return registry -> {
+            Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+            for (String region : hibernateCacheManager.getCacheNames()) {
+                if (statistics.getCacheRegionStatistics(region) == null) {
+                    continue;
+                }
+                FunctionCounter.builder("cache.gets", statistics, s -> s.getCacheRegionStatistics(region).getHitCount())
+                        .tag("cache", region).tag("result", "hit")
+                        .register(registry);
+                FunctionCounter.builder("cache.gets", statistics, s -> s.getCacheRegionStatistics(region).getMissCount())
+                        .tag("cache", region).tag("result", "miss")
+                        .register(registry);
+                FunctionCounter.builder("cache.puts", statistics, s -> s.getCacheRegionStatistics(region).getPutCount())
+                        .tag("cache", region)
+                        .register(registry);
+                Gauge.builder("cache.size", hibernateCacheManager, manager -> manager.getCache(region)
+                        .unwrap(com.github.benmanes.caffeine.cache.Cache.class).estimatedSize())
+                        .tag("cache", region)
+                        .register(registry);
+            }
+        };
+    }
+
+    @Bean
+    public MeterBinder passwordEncoderMetrics(BoundedPasswordEncoder passwordEncoder) {
+        return registry -> {
+            Gauge.builder("password.encoder.queue", passwordEncoder, BoundedPasswordEncoder::getQueueDepth)
+                    .description("Hashes waiting for a free thread")
+                    .register(registry);
+            Gauge.builder("password.encoder.active", passwordEncoder, BoundedPasswordEncoder::getActiveCount)
+                    .description("Hashes currently running")
+                    .register(registry);
+            FunctionCounter.builder("password.encoder.completed", passwordEncoder,
+                    BoundedPasswordEncoder::getCompletedCount)
+                    .register(registry);
+            FunctionCounter.builder("password.encoder.rejected", passwordEncoder,
+                    BoundedPasswordEncoder::getRejectedCount)
+                    .description("Hashes turned away because the queue was full or the wait timed out")
+                    .register(registry);
+            Gauge.builder("password.encoder.hash.mean", passwordEncoder, BoundedPasswordEncoder::getMeanHashMillis)
+                    .baseUnit("milliseconds")
+                    .register(registry);
+            Gauge.builder("password.encoder.hash.max", passwordEncoder, BoundedPasswordEncoder::getMaxHashMillis)
+                    .baseUnit("milliseconds")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder orderIngestionMetrics(OrderIngestionService orderIngestionService) {
+        return registry -> {
+            Gauge.builder("order.ingestion.queue", orderIngestionService, OrderIngestionService::getQueueDepth)
+                    .description("Orders accepted but not yet written")
+                    .register(registry);
+            FunctionCounter.builder("order.ingestion.orders", orderIngestionService,
+                    OrderIngestionService::getPersistedCount)
+                    .tag("result", "persisted")
+                    .register(registry);
+            FunctionCounter.builder("order.ingestion.orders", orderIngestionService,
+                    OrderIngestionService::getFailedCount)
+                    .tag("result", "failed")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder orderOutboxMetrics(OrderOutboxPublisher publisher) {
+        return registry -> {
+            Gauge.builder("order.outbox.pending", publisher, OrderOutboxPublisher::getPendingCount)
+                    .description("Order events waiting to be delivered")
+                    .register(registry);
+            Gauge.builder("order.outbox.lag", publisher, OrderOutboxPublisher::getLagMillis)
+                    .description("How long the oldest undelivered order event has been waiting")
+                    .baseUnit("milliseconds")
+                    .register(registry);
+            FunctionCounter.builder("order.outbox.events", publisher, OrderOutboxPublisher::getDeliveredCount)
+                    .tag("result", "delivered")
+                    .register(registry);
+            FunctionCounter.builder("order.outbox.events", publisher, OrderOutboxPublisher::getFailedCount)
+                    .description("Deliveries the sink failed on; the events are delivered again")
+                    .tag("result", "failed")
+                    .register(registry);
+        };
+    }
+
+    /**
+     * Only bound when the data source routes between a primary and a read replica, see
+     * {@link com.example.demo.datasource.ReplicaRoutingConfiguration}.
+     */
+    @Bean
+    public MeterBinder replicaRoutingMetrics(DataSource dataSource) {
+        return registry -> {
+            ReadReplicaRoutingDataSource routing;
+            try {
+                if (!dataSource.isWrapperFor(ReadReplicaRoutingDataSource.class)) {
+                    return;
+                }
+                routing = dataSource.unwrap(ReadReplicaRoutingDataSource.class);
+            } catch (SQLException e) {
+                return;
+            }
+            for (ReadReplicaRoutingDataSource.Route route : ReadReplicaRoutingDataSource.Route.values()) {
+                FunctionCounter.builder("datasource.routed", routing, r -> r.getRoutedCount(route))
+                        .description("Connections handed out, by the pool chosen for them")
+                        .tag("route", route.name().toLowerCase())
+                        .register(registry);
+            }
+            Gauge.builder("datasource.replica.lag", routing.getMonitor(), ReplicaLagMonitor::getLagMillis)
+                    .description("Last measured replication lag, -1 while unknown")
+                    .baseUnit("milliseconds")
+                    .register(registry);
+            // Spring Boot instruments the pool the data source unwraps to, which is the primary
+            if (routing.getReplica() instanceof HikariDataSource) {
+                HikariDataSource replica = (HikariDataSource) routing.getReplica();
+                if (replica.getMetricsTrackerFactory() == null) {
+                    replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+                }
+            }
+        };
+    }
+
+    /**
+     * Pool metrics of the order shards, tagged with their pool names, when orders are sharded; see
+     * {@link com.example.demo.sharding.OrderShardingConfiguration}.
+     */
+    @Bean
+    public MeterBinder orderShardMetrics(ObjectProvider<OrderShardRouter> orderShardRouter) {
+        return registry -> orderShardRouter.ifAvailable(router -> {
+            for (DataSource shard : router.getShards()) {
+                if (shard instanceof HikariDataSource
+                        && ((HikariDataSource) shard).getMetricsTrackerFactory() == null) {
+                    ((HikariDataSource) shard).setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+                }
+            }
+        });
+    }
+
+    @Bean
+    public MeterBinder logShippingMetrics() {
+        return registry -> {
+            LoggerContext context = (LoggerContext) LogManager.getContext(false);
+            for (Appender appender : context.getConfiguration().getAppenders().values()) {
+                if (!(appender instanceof HttpEventCollectorAppender)) {
+                    continue;
+                }
+                HttpEventCollectorAppender collector = (HttpEventCollectorAppender) appender;
+                String name = appender.getName();
+                Gauge.builder("log.shipping.queue", collector, HttpEventCollectorAppender::getQueueDepth)
+                        .tag("appender", name)
+                        .register(registry);
+                FunctionCounter.builder("log.shipping.events", collector, HttpEventCollectorAppender::getSentCount)
+                        .tag("appender", name).tag("result", "sent")
+                        .register(registry);
+                FunctionCounter.builder("log.shipping.events", collector, HttpEventCollectorAppender::getDroppedCount)
+                        .tag("appender", name).tag("result", "dropped")
+                        .register(registry);
+                FunctionCounter.builder("log.shipping.events", collector, HttpEventCollectorAppender::getFailedCount)
+                        .tag("appender", name).tag("result", "failed")
+                        .register(registry);
+            }
+        };
+    }
+
+    /**
+     * Micrometer only holds the measured object weakly, so {@code owner} must be the long-lived
+     * bean rather than a lambda wrapping it.
+     */
+    private static <T> void bindCacheStats(MeterRegistry registry, String cache, T owner,
+                                           Function<T, CacheStats> stats) {
+        FunctionCounter.builder("cache.gets", owner, o -> stats.apply(o).hitCount())
+                .tag("cache", cache).tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", owner, o -> stats.apply(o).missCount())
+                .tag("cache", cache).tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("cache.evictions", owner, o -> stats.apply(o).evictionCount())
+                .tag("cache", cache)
+                .register(registry);
+    }
+}
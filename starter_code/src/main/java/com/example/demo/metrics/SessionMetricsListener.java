@@ -0,0 +1,87 @@
+package com.example.demo.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.hibernate.BaseSessionEventListener;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-session Hibernate counters. Hibernate creates one instance for every session it opens
+ * (registered through {@code hibernate.session.events.auto}), and with open-session-in-view a
+ * session spans one request, so the summaries recorded when the session ends read as JDBC
+ * statements, flushes and database time per request.
+ */
+public class SessionMetricsListener extends BaseSessionEventListener {
+    private int statements;
+    private int batches;
+    private int flushes;
+    private long jdbcNanos;
+    private long connectionNanos;
+
+    private long statementStart;
+    private long batchStart;
+    private long connectionStart;
+
+    @Override
+    public void jdbcConnectionAcquisitionStart() {
+        connectionStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcConnectionAcquisitionEnd() {
+        connectionNanos += System.nanoTime() - connectionStart;
+    }
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        statementStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        statements++;
+        jdbcNanos += System.nanoTime() - statementStart;
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        batchStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        batches++;
+        jdbcNanos += System.nanoTime() - batchStart;
+    }
+
+    @Override
+    public void flushEnd(int numberOfEntities, int numberOfCollections) {
+        flushes++;
+    }
+
+    @Override
+    public void end() {
+        DistributionSummary.builder("hibernate.session.statements")
+                .description("JDBC statements executed per session")
+                .register(Metrics.globalRegistry)
+                .record(statements);
+        DistributionSummary.builder("hibernate.session.batches")
+                .description("JDBC batches executed per session")
+                .register(Metrics.globalRegistry)
+                .record(batches);
+        DistributionSummary.builder("hibernate.session.flushes")
+                .description("Flushes per session")
+                .register(Metrics.globalRegistry)
+                .record(flushes);
+        Timer.builder("hibernate.session.jdbc")
+                .description("Time spent executing JDBC statements and batches per session")
+                .register(Metrics.globalRegistry)
+                .record(jdbcNanos, TimeUnit.NANOSECONDS);
+        Timer.builder("hibernate.session.connection.acquire")
+                .description("Time spent obtaining a JDBC connection per session")
+                .register(Metrics.globalRegistry)
+                .record(connectionNanos, TimeUnit.NANOSECONDS);
+    }
+}
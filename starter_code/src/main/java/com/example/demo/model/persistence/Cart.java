@@ -1,21 +1,25 @@
 package com.example.demo.model.persistence;
 
 import java.math.BigDecimal;
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
+import javax.persistence.CascadeType;
 import javax.persistence.Column;
+import javax.persistence.Convert;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
-import javax.persistence.ManyToMany;
+import javax.persistence.MapKey;
 import javax.persistence.OneToMany;
 import javax.persistence.OneToOne;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Version;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 @Entity
@@ -23,30 +27,43 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 public class Cart {
 	
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cart_seq")
+	@SequenceGenerator(name = "cart_seq", sequenceName = "cart_seq", allocationSize = 50)
 	@JsonProperty
 	@Column
 	private Long id;
 	
-	@ManyToMany
-	@JsonProperty
-	@Column
-    private List<Item> items;
+	// one line per distinct item, keyed by item id
+	@OneToMany(mappedBy = "cart", cascade = CascadeType.ALL, orphanRemoval = true)
+	@MapKey(name = "itemId")
+	private Map<Long, CartLine> lines = new LinkedHashMap<>();
 	
 	@OneToOne(mappedBy = "cart")
 	@JsonProperty
     private User user;
 	
-	@Column
-	@JsonProperty
-	private BigDecimal total;
+	@Column(precision = 19, scale = Money.SCALE)
+	@Convert(converter = MoneyConverter.class)
+	private long total;
 	
+	// every change to the lines also changes the total, so bumping it on the cart row is enough
+	// to detect concurrent modifications, see CartService
+	@Version
+	@JsonIgnore
+	private long version;
+	
+	@JsonProperty
 	public BigDecimal getTotal() {
-		return total;
+		return Money.toDecimal(total);
 	}
 
 	public void setTotal(BigDecimal total) {
-		this.total = total;
+		this.total = Money.toCents(total);
+	}
+
+	@JsonIgnore
+	public long getTotalCents() {
+		return total;
 	}
 
 	public User getUser() {
@@ -65,33 +82,46 @@ public class Cart {
 		this.id = id;
 	}
 
-	public List<Item> getItems() {
-		return items;
+	@JsonProperty
+	public Collection<CartLine> getLines() {
+		return lines.values();
 	}
 
-	public void setItems(List<Item> items) {
-		this.items = items;
+	public CartLine getLine(Item item) {
+		return lines.get(item.getId());
 	}
 	
 	public void addItem(Item item) {
-		if(items == null) {
-			items = new ArrayList<>();
+		addItem(item, 1);
+	}
+
+	public void addItem(Item item, int quantity) {
+		if(quantity <= 0) {
+			return;
 		}
-		items.add(item);
-		if(total == null) {
-			total = new BigDecimal(0);
+		CartLine line = lines.get(item.getId());
+		if(line == null) {
+			line = new CartLine(this, item);
+			lines.put(item.getId(), line);
 		}
-		total = total.add(item.getPrice());
+		line.setQuantity(Math.addExact(line.getQuantity(), quantity));
+		total = Math.addExact(total, Math.multiplyExact(line.getUnitPriceCents(), quantity));
 	}
 	
 	public void removeItem(Item item) {
-		if(items == null) {
-			items = new ArrayList<>();
+		removeItem(item, 1);
+	}
+
+	public void removeItem(Item item, int quantity) {
+		CartLine line = lines.get(item.getId());
+		if(line == null || quantity <= 0) {
+			return;
 		}
-		items.remove(item);
-		if(total == null) {
-			total = new BigDecimal(0);
+		int removed = Math.min(quantity, line.getQuantity());
+		line.setQuantity(line.getQuantity() - removed);
+		if(line.getQuantity() == 0) {
+			lines.remove(item.getId());
 		}
-		total = total.subtract(item.getPrice());
+		total = Math.subtractExact(total, Math.multiplyExact(line.getUnitPriceCents(), removed));
 	}
 }
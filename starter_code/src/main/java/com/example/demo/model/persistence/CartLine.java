@@ -0,0 +1,100 @@
+package com.example.demo.model.persistence;
+
+import java.math.BigDecimal;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * One distinct item in a {@link Cart} together with how many units of it the cart holds and
+ * the unit price captured when the item was first added.
+ */
+@Entity
+@Table(name = "cart_line", uniqueConstraints = @UniqueConstraint(columnNames = {"cart_id", "item_id"}))
+public class CartLine {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cart_line_seq")
+	@SequenceGenerator(name = "cart_line_seq", sequenceName = "cart_line_seq", allocationSize = 50)
+	@JsonIgnore
+	private Long id;
+
+	@ManyToOne(optional = false)
+	@JoinColumn(name = "cart_id", nullable = false)
+	@JsonIgnore
+	private Cart cart;
+
+	@ManyToOne(optional = false)
+	@JoinColumn(name = "item_id", nullable = false)
+	@JsonProperty
+	private Item item;
+
+	// read-only view of the item_id join column, used as the key of Cart.lines
+	@Column(name = "item_id", insertable = false, updatable = false)
+	@JsonIgnore
+	private Long itemId;
+
+	@Column(nullable = false)
+	@JsonProperty
+	private int quantity;
+
+	@Column(nullable = false, precision = 19, scale = Money.SCALE)
+	@Convert(converter = MoneyConverter.class)
+	private long unitPrice;
+
+	protected CartLine() {
+	}
+
+	public CartLine(Cart cart, Item item) {
+		this.cart = cart;
+		this.item = item;
+		this.itemId = item.getId();
+		this.unitPrice = item.getPriceCents();
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public Cart getCart() {
+		return cart;
+	}
+
+	public Item getItem() {
+		return item;
+	}
+
+	public Long getItemId() {
+		return itemId;
+	}
+
+	public int getQuantity() {
+		return quantity;
+	}
+
+	public void setQuantity(int quantity) {
+		this.quantity = quantity;
+	}
+
+	@JsonProperty
+	public BigDecimal getUnitPrice() {
+		return Money.toDecimal(unitPrice);
+	}
+
+	@JsonIgnore
+	public long getUnitPriceCents() {
+		return unitPrice;
+	}
+}
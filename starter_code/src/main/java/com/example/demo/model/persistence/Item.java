@@ -2,24 +2,35 @@ package com.example.demo.model.persistence;
 
 import java.math.BigDecimal;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
+import javax.persistence.Convert;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import com.example.demo.cache.SecondLevelCacheConfiguration;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfiguration.ITEM_REGION)
 @Table(name = "item")
 public class Item {
 
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "item_seq")
+	// ids 1 and 2 are the seed items in data.sql
+	@SequenceGenerator(name = "item_seq", sequenceName = "item_seq", initialValue = 3, allocationSize = 50)
 	@JsonProperty
 	private Long id;
 	
@@ -27,9 +38,9 @@ public class Item {
 	@JsonProperty
 	private String name;
 	
-	@Column(nullable = false)
-	@JsonProperty
-	private BigDecimal price;
+	@Column(nullable = false, precision = 19, scale = Money.SCALE)
+	@Convert(converter = MoneyConverter.class)
+	private long price;
 	
 	@Column(nullable = false)
 	@JsonProperty
@@ -76,12 +87,18 @@ public class Item {
 		this.name = name;
 	}
 
+	@JsonProperty
 	public BigDecimal getPrice() {
-		return price;
+		return Money.toDecimal(price);
 	}
 
 	public void setPrice(BigDecimal price) {
-		this.price = price;
+		this.price = Money.toCents(price);
+	}
+
+	@JsonIgnore
+	public long getPriceCents() {
+		return price;
 	}
 
 	public String getDescription() {
@@ -0,0 +1,28 @@
+package com.example.demo.model.persistence;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Prices and totals are held as a {@code long} count of minor units (cents) so that cart and
+ * order arithmetic is exact and allocation-free. They are turned into decimals with
+ * {@link #SCALE} fraction digits only when read from or written to JSON and the database.
+ */
+public final class Money {
+	public static final int SCALE = 2;
+
+	private Money() {
+	}
+
+	/**
+	 * @throws ArithmeticException if the amount has more than {@link #SCALE} fraction digits
+	 * or does not fit in a long
+	 */
+	public static long toCents(BigDecimal amount) {
+		return amount.setScale(SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+	}
+
+	public static BigDecimal toDecimal(long cents) {
+		return BigDecimal.valueOf(cents, SCALE);
+	}
+}
@@ -0,0 +1,23 @@
+package com.example.demo.model.persistence;
+
+import java.math.BigDecimal;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+
+/**
+ * Stores an amount in cents as a DECIMAL column with {@link Money#SCALE} fraction digits.
+ */
+@Converter
+public class MoneyConverter implements AttributeConverter<Long, BigDecimal> {
+
+	@Override
+	public BigDecimal convertToDatabaseColumn(Long cents) {
+		return cents == null ? null : Money.toDecimal(cents);
+	}
+
+	@Override
+	public Long convertToEntityAttribute(BigDecimal amount) {
+		return amount == null ? null : Money.toCents(amount);
+	}
+}
@@ -0,0 +1,141 @@
+package com.example.demo.model.persistence;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * An order event waiting in the outbox to be delivered. It is written in the transaction that
+ * stores the order and deleted once delivered, so the table only holds what has not gone out yet.
+ */
+@Entity
+@Table(name = "order_outbox")
+public class OrderEvent {
+	public static final String ORDER_PLACED = "order.placed";
+
+	// delivery order, not exposed to consumers
+	@Id
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_outbox_seq")
+	@SequenceGenerator(name = "order_outbox_seq", sequenceName = "order_outbox_seq", allocationSize = 50)
+	@JsonIgnore
+	private Long id;
+
+	// stays the same when the event is delivered again, for consumers to deduplicate by
+	@Column(nullable = false, unique = true, length = 36)
+	@JsonProperty
+	private String eventId;
+
+	@Column(nullable = false)
+	@JsonProperty
+	private String type;
+
+	@Column(nullable = false)
+	@JsonProperty
+	private Long orderId;
+
+	@Column(nullable = false, length = 36)
+	@JsonProperty
+	private String reference;
+
+	@Column(nullable = false)
+	@JsonProperty
+	private Long userId;
+
+	@Column(nullable = false, precision = 19, scale = Money.SCALE)
+	@Convert(converter = MoneyConverter.class)
+	private long total;
+
+	@Column(nullable = false)
+	@JsonProperty
+	private int itemCount;
+
+	@Column(nullable = false)
+	@JsonProperty
+	private Instant occurredAt;
+
+	protected OrderEvent() {
+	}
+
+	/**
+	 * An event read back from an outbox outside of JPA.
+	 */
+	public OrderEvent(Long id, String eventId, String type, Long orderId, String reference, Long userId, long total,
+			int itemCount, Instant occurredAt) {
+		this.id = id;
+		this.eventId = eventId;
+		this.type = type;
+		this.orderId = orderId;
+		this.reference = reference;
+		this.userId = userId;
+		this.total = total;
+		this.itemCount = itemCount;
+		this.occurredAt = occurredAt;
+	}
+
+	public static OrderEvent placed(UserOrder order) {
+		OrderEvent event = new OrderEvent();
+		event.eventId = UUID.randomUUID().toString();
+		event.type = ORDER_PLACED;
+		event.orderId = order.getId();
+		event.reference = order.getReference();
+		event.userId = order.getUser().getId();
+		event.total = order.getTotalCents();
+		event.itemCount = order.getItemCount();
+		event.occurredAt = order.getCreatedAt() == null ? Instant.now() : order.getCreatedAt();
+		return event;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public String getEventId() {
+		return eventId;
+	}
+
+	public String getType() {
+		return type;
+	}
+
+	public Long getOrderId() {
+		return orderId;
+	}
+
+	public String getReference() {
+		return reference;
+	}
+
+	public Long getUserId() {
+		return userId;
+	}
+
+	@JsonProperty
+	public BigDecimal getTotal() {
+		return Money.toDecimal(total);
+	}
+
+	@JsonIgnore
+	public long getTotalCents() {
+		return total;
+	}
+
+	public int getItemCount() {
+		return itemCount;
+	}
+
+	public Instant getOccurredAt() {
+		return occurredAt;
+	}
+}
@@ -0,0 +1,74 @@
+package com.example.demo.model.persistence;
+
+import java.math.BigDecimal;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Embeddable;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * One item of a {@link UserOrder} as it was when the order was submitted. It copies the item's
+ * id, name and unit price instead of referring to the catalog row, so later catalog changes do
+ * not alter past orders and reading an order never touches the item table.
+ */
+@Embeddable
+public class OrderLine {
+
+	@Column(name = "item_id", nullable = false)
+	@JsonProperty
+	private Long itemId;
+
+	@Column(nullable = false)
+	@JsonProperty
+	private String name;
+
+	@Column(nullable = false, precision = 19, scale = Money.SCALE)
+	@Convert(converter = MoneyConverter.class)
+	private long unitPrice;
+
+	@Column(nullable = false)
+	@JsonProperty
+	private int quantity;
+
+	protected OrderLine() {
+	}
+
+	public OrderLine(Long itemId, String name, long unitPriceCents, int quantity) {
+		this.itemId = itemId;
+		this.name = name;
+		this.unitPrice = unitPriceCents;
+		this.quantity = quantity;
+	}
+
+	/**
+	 * Snapshot of a cart line, at the price the cart holds it for.
+	 */
+	public static OrderLine of(CartLine line) {
+		return new OrderLine(line.getItemId(), line.getItem().getName(), line.getUnitPriceCents(), line.getQuantity());
+	}
+
+	public Long getItemId() {
+		return itemId;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	@JsonProperty
+	public BigDecimal getUnitPrice() {
+		return Money.toDecimal(unitPrice);
+	}
+
+	@JsonIgnore
+	public long getUnitPriceCents() {
+		return unitPrice;
+	}
+
+	public int getQuantity() {
+		return quantity;
+	}
+}
@@ -1,21 +1,27 @@
 package com.example.demo.model.persistence;
 
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.UUID;
 
-import javax.persistence.CascadeType;
+import javax.persistence.CollectionTable;
 import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.ElementCollection;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
-import javax.persistence.JoinTable;
-import javax.persistence.ManyToMany;
 import javax.persistence.ManyToOne;
+import javax.persistence.OrderColumn;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 @Entity
@@ -23,24 +29,36 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 public class UserOrder {
 
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_order_seq")
+	@SequenceGenerator(name = "user_order_seq", sequenceName = "user_order_seq", allocationSize = 50)
 	@JsonProperty
 	@Column
 	private Long id;
 	
-	@ManyToMany(cascade = CascadeType.ALL)
+	// captured at submit time and never changed afterwards
+	@ElementCollection
+	@CollectionTable(name = "user_order_line", joinColumns = @JoinColumn(name = "order_id"))
+	@OrderColumn(name = "line_index")
 	@JsonProperty
-	@Column
-    private List<Item> items;
+	private List<OrderLine> lines = new ArrayList<>();
 	
 	@ManyToOne
 	@JoinColumn(name="user_id", nullable = false, referencedColumnName = "id")
 	@JsonProperty
     private User user;
 	
+	@Column(precision = 19, scale = Money.SCALE)
+	@Convert(converter = MoneyConverter.class)
+	private long total;
+	
+	// client-facing handle, assigned before the order is written so it can be returned up front
+	@JsonProperty
+	@Column(unique = true, length = 36)
+	private String reference;
+
 	@JsonProperty
 	@Column
-	private BigDecimal total;
+	private Instant createdAt;
 
 	public Long getId() {
 		return id;
@@ -50,12 +68,24 @@ public class UserOrder {
 		this.id = id;
 	}
 
-	public List<Item> getItems() {
-		return items;
+	public List<OrderLine> getLines() {
+		return Collections.unmodifiableList(lines);
+	}
+
+	public void setLines(List<OrderLine> lines) {
+		this.lines = new ArrayList<>(lines);
 	}
 
-	public void setItems(List<Item> items) {
-		this.items = items;
+	/**
+	 * Number of units across all lines.
+	 */
+	@JsonIgnore
+	public int getItemCount() {
+		int count = 0;
+		for (OrderLine line : lines) {
+			count += line.getQuantity();
+		}
+		return count;
 	}
 
 	public User getUser() {
@@ -66,19 +96,51 @@ public class UserOrder {
 		this.user = user;
 	}
 	
+	@JsonProperty
 	public BigDecimal getTotal() {
-		return total;
+		return Money.toDecimal(total);
 	}
 
 	public void setTotal(BigDecimal total) {
+		this.total = Money.toCents(total);
+	}
+
+	@JsonIgnore
+	public long getTotalCents() {
+		return total;
+	}
+
+	public void setTotalCents(long total) {
 		this.total = total;
 	}
 
+	public String getReference() {
+		return reference;
+	}
+
+	public void setReference(String reference) {
+		this.reference = reference;
+	}
+
+	public Instant getCreatedAt() {
+		return createdAt;
+	}
+
+	public void setCreatedAt(Instant createdAt) {
+		this.createdAt = createdAt;
+	}
+
 	public static UserOrder createFromCart(Cart cart) {
 		UserOrder order = new UserOrder();
-		order.setItems(cart.getItems().stream().collect(Collectors.toList()));
-		order.setTotal(cart.getTotal());
+		List<OrderLine> lines = new ArrayList<>(cart.getLines().size());
+		for (CartLine line : cart.getLines()) {
+			lines.add(OrderLine.of(line));
+		}
+		order.setLines(lines);
+		order.setTotalCents(cart.getTotalCents());
 		order.setUser(cart.getUser());
+		order.setReference(UUID.randomUUID().toString());
+		order.setCreatedAt(Instant.now());
 		return order;
 	}
 }
@@ -0,0 +1,86 @@
+package com.example.demo.model.persistence;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Running totals of a user's orders, kept up to date as orders are stored so that they can be
+ * read without touching the orders themselves.
+ */
+@Entity
+@Table(name = "user_order_summary")
+public class UserOrderSummary {
+
+	@Id
+	@Column(name = "user_id")
+	@JsonIgnore
+	private Long userId;
+
+	@Column(nullable = false)
+	@JsonProperty
+	private long orderCount;
+
+	@Column(nullable = false, precision = 19, scale = Money.SCALE)
+	@Convert(converter = MoneyConverter.class)
+	private long totalSpent;
+
+	@Column
+	@JsonProperty
+	private Long lastOrderId;
+
+	@Column
+	@JsonProperty
+	private Instant lastOrderAt;
+
+	protected UserOrderSummary() {
+	}
+
+	public UserOrderSummary(Long userId) {
+		this.userId = userId;
+	}
+
+	public Long getUserId() {
+		return userId;
+	}
+
+	public long getOrderCount() {
+		return orderCount;
+	}
+
+	@JsonProperty
+	public BigDecimal getTotalSpent() {
+		return Money.toDecimal(totalSpent);
+	}
+
+	@JsonIgnore
+	public long getTotalSpentCents() {
+		return totalSpent;
+	}
+
+	public Long getLastOrderId() {
+		return lastOrderId;
+	}
+
+	public Instant getLastOrderAt() {
+		return lastOrderAt;
+	}
+
+	/**
+	 * Replaces the running totals with ones recomputed from the order history.
+	 */
+	public void reset(long orderCount, long totalSpent, Long lastOrderId, Instant lastOrderAt) {
+		this.orderCount = orderCount;
+		this.totalSpent = totalSpent;
+		this.lastOrderId = lastOrderId;
+		this.lastOrderAt = lastOrderAt;
+	}
+}
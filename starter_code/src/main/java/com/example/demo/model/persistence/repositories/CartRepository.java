@@ -1,13 +1,41 @@
 package com.example.demo.model.persistence.repositories;
 
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.example.demo.model.persistence.Cart;
 import com.example.demo.model.persistence.User;
+import com.example.demo.model.responses.CartLineResponse;
+import com.example.demo.model.responses.CartResponse;
 
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface CartRepository extends JpaRepository<Cart, Long> {
 	Cart findByUser(User user);
+
+	/**
+	 * The cart together with its user, its lines and their items, in one query.
+	 */
+	@EntityGraph(attributePaths = {"user", "lines", "lines.item"})
+	Optional<Cart> findWithLinesById(Long id);
+
+	@Query("select new com.example.demo.model.responses.CartResponse(c.id, c.total) from Cart c where c.id = :id")
+	Optional<CartResponse> findResponseById(@Param("id") Long id);
+
+	@Query("select new com.example.demo.model.responses.CartResponse(c.id, c.total)"
+			+ " from User u join u.cart c where u.username = :username")
+	Optional<CartResponse> findResponseByUsername(@Param("username") String username);
+
+	/**
+	 * Lines of a cart with the names of their items, in the order they were added.
+	 */
+	@Query("select new com.example.demo.model.responses.CartLineResponse(l.itemId, i.name, l.unitPrice, l.quantity)"
+			+ " from CartLine l join l.item i where l.cart.id = :cartId order by l.id")
+	List<CartLineResponse> findResponseLines(@Param("cartId") Long cartId);
 }
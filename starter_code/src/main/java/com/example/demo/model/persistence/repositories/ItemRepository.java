@@ -1,14 +1,35 @@
 package com.example.demo.model.persistence.repositories;
 
 import java.util.List;
+import java.util.Optional;
+
+import javax.persistence.QueryHint;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import com.example.demo.cache.SecondLevelCacheConfiguration;
 import com.example.demo.model.persistence.Item;
+import com.example.demo.model.responses.ItemResponse;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface ItemRepository extends JpaRepository<Item, Long> {
+	@QueryHints({@QueryHint(name = "org.hibernate.cacheable", value = "true"),
+			@QueryHint(name = "org.hibernate.cacheRegion", value = SecondLevelCacheConfiguration.ITEMS_BY_NAME_REGION)})
 	List<Item> findByName(String name);
 
+	@Query("select new com.example.demo.model.responses.ItemResponse(i.id, i.name, i.price, i.description)"
+			+ " from Item i order by i.id")
+	List<ItemResponse> findAllResponses();
+
+	@Query("select new com.example.demo.model.responses.ItemResponse(i.id, i.name, i.price, i.description)"
+			+ " from Item i where i.id = :id")
+	Optional<ItemResponse> findResponseById(@Param("id") Long id);
+
+	@Query("select new com.example.demo.model.responses.ItemResponse(i.id, i.name, i.price, i.description)"
+			+ " from Item i where i.name = :name order by i.id")
+	List<ItemResponse> findResponsesByName(@Param("name") String name);
 }
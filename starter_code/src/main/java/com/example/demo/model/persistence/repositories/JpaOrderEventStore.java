@@ -0,0 +1,58 @@
+package com.example.demo.model.persistence.repositories;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.model.persistence.OrderEvent;
+
+/**
+ * Keeps the outbox in the application's own database, through {@link OrderEventRepository}, as
+ * one outbox.
+ */
+@Repository
+public class JpaOrderEventStore implements OrderEventStore {
+	private final OrderEventRepository eventRepository;
+	private final TransactionTemplate transaction;
+
+	public JpaOrderEventStore(OrderEventRepository eventRepository, PlatformTransactionManager transactionManager) {
+		this.eventRepository = eventRepository;
+		this.transaction = new TransactionTemplate(transactionManager);
+	}
+
+	@Override
+	public void append(OrderEvent event) {
+		eventRepository.save(event);
+	}
+
+	@Override
+	public int outboxCount() {
+		return 1;
+	}
+
+	@Override
+	public List<OrderEvent> findOldest(int outbox, int limit) {
+		return eventRepository.findAllByOrderByIdAsc(PageRequest.of(0, limit));
+	}
+
+	@Override
+	public void delete(int outbox, Collection<Long> ids) {
+		transaction.execute(status -> eventRepository.deleteByIds(ids));
+	}
+
+	@Override
+	public long count() {
+		return eventRepository.count();
+	}
+
+	@Override
+	public Instant findOldestOccurredAt() {
+		OrderEvent oldest = eventRepository.findFirstByOrderByIdAsc();
+		return oldest == null ? null : oldest.getOccurredAt();
+	}
+}
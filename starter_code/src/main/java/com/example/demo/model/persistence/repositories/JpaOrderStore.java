@@ -0,0 +1,71 @@
+package com.example.demo.model.persistence.repositories;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Repository;
+
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.responses.OrderLineResponse;
+import com.example.demo.model.responses.OrderResponse;
+
+/**
+ * Keeps every order in the application's own database, through {@link OrderRepository}.
+ */
+@Repository
+public class JpaOrderStore implements OrderStore {
+	private final OrderRepository orderRepository;
+
+	public JpaOrderStore(OrderRepository orderRepository) {
+		this.orderRepository = orderRepository;
+	}
+
+	@Override
+	public UserOrder save(UserOrder order) {
+		return orderRepository.save(order);
+	}
+
+	@Override
+	public List<UserOrder> findByUser(User user) {
+		return orderRepository.findByUser(user);
+	}
+
+	@Override
+	public UserOrder findByReference(String reference) {
+		return orderRepository.findByReference(reference);
+	}
+
+	@Override
+	public boolean existsByUserId(Long userId) {
+		return orderRepository.existsByUserId(userId);
+	}
+
+	@Override
+	public OrderRepository.Totals totalsForUser(Long userId) {
+		return orderRepository.totalsForUser(userId);
+	}
+
+	@Override
+	public Instant findCreatedAt(Long userId, Long orderId) {
+		return orderRepository.findCreatedAtById(orderId);
+	}
+
+	@Override
+	public List<OrderResponse> findResponsesByUserId(Long userId, Long afterId, Pageable pageable) {
+		return orderRepository.findResponsesByUserId(userId, afterId, pageable);
+	}
+
+	@Override
+	public Stream<OrderResponse> streamResponsesByUserId(Long userId) {
+		return orderRepository.streamResponsesByUserId(userId);
+	}
+
+	@Override
+	public List<OrderLineResponse> findResponseLines(Long userId, Collection<Long> orderIds) {
+		return orderRepository.findResponseLines(orderIds);
+	}
+}
@@ -0,0 +1,27 @@
+package com.example.demo.model.persistence.repositories;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.example.demo.model.persistence.OrderEvent;
+
+@Repository
+public interface OrderEventRepository extends JpaRepository<OrderEvent, Long> {
+	/**
+	 * The oldest undelivered events, in the order they were written.
+	 */
+	List<OrderEvent> findAllByOrderByIdAsc(Pageable pageable);
+
+	OrderEvent findFirstByOrderByIdAsc();
+
+	@Modifying
+	@Query("delete from OrderEvent e where e.id in :ids")
+	int deleteByIds(@Param("ids") Collection<Long> ids);
+}
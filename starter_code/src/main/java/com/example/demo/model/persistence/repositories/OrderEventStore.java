@@ -0,0 +1,42 @@
+package com.example.demo.model.persistence.repositories;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+import com.example.demo.model.persistence.OrderEvent;
+
+/**
+ * Where the order outbox is kept: next to the orders of the matching {@link OrderStore}, so that
+ * an event is committed exactly when its order is. The events may be split over several outboxes,
+ * each read and cleared on its own; see {@link JpaOrderEventStore} for the application's database
+ * and {@link com.example.demo.sharding.ShardedOrderEventStore} for one outbox per order shard.
+ */
+public interface OrderEventStore {
+	/**
+	 * Adds the event in the transaction that stores its order, to the outbox of the order.
+	 */
+	void append(OrderEvent event);
+
+	int outboxCount();
+
+	/**
+	 * The oldest undelivered events of one outbox, in the order they were written.
+	 */
+	List<OrderEvent> findOldest(int outbox, int limit);
+
+	/**
+	 * Deletes delivered events from one outbox, committed on their own.
+	 */
+	void delete(int outbox, Collection<Long> ids);
+
+	/**
+	 * Undelivered events in all outboxes.
+	 */
+	long count();
+
+	/**
+	 * When the oldest undelivered event in any outbox occurred, or null if there is none.
+	 */
+	Instant findOldestOccurredAt();
+}
@@ -1,14 +1,75 @@
 package com.example.demo.model.persistence.repositories;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import com.example.demo.model.persistence.User;
 import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.responses.OrderLineResponse;
+import com.example.demo.model.responses.OrderResponse;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
 @Repository
 public interface OrderRepository extends JpaRepository<UserOrder, Long> {
 	List<UserOrder> findByUser(User user);
+
+	UserOrder findByReference(String reference);
+
+	boolean existsByUserId(Long userId);
+
+	/**
+	 * Count, total spend and latest order of a user, computed from the full history.
+	 */
+	@Query("select count(o) as orderCount, sum(o.total) as totalSpentCents, max(o.id) as lastOrderId"
+			+ " from UserOrder o where o.user.id = :userId")
+	Totals totalsForUser(@Param("userId") Long userId);
+
+	/**
+	 * Keyset page of a user's orders: the orders with an id greater than {@code afterId}, oldest
+	 * first and without their lines, see {@link #findResponseLines(Collection)}.
+	 */
+	@Query("select new com.example.demo.model.responses.OrderResponse(o.id, o.reference, o.createdAt, o.total)"
+			+ " from UserOrder o where o.user.id = :userId and o.id > :afterId order by o.id")
+	List<OrderResponse> findResponsesByUserId(@Param("userId") Long userId, @Param("afterId") Long afterId,
+			Pageable pageable);
+
+	/**
+	 * All of a user's orders without their lines, as a server-side cursor. Must be consumed and
+	 * closed inside a transaction.
+	 */
+	@QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "100"))
+	@Query("select new com.example.demo.model.responses.OrderResponse(o.id, o.reference, o.createdAt, o.total)"
+			+ " from UserOrder o where o.user.id = :userId order by o.id")
+	Stream<OrderResponse> streamResponsesByUserId(@Param("userId") Long userId);
+
+	/**
+	 * Lines of the given orders, grouped by order and in the order they were submitted.
+	 */
+	@Query("select new com.example.demo.model.responses.OrderLineResponse(o.id, l.itemId, l.name, l.unitPrice, l.quantity)"
+			+ " from UserOrder o join o.lines l where o.id in :orderIds order by o.id, index(l)")
+	List<OrderLineResponse> findResponseLines(@Param("orderIds") Collection<Long> orderIds);
+
+	@Query("select o.createdAt from UserOrder o where o.id = :id")
+	Instant findCreatedAtById(@Param("id") Long id);
+
+	interface Totals {
+		long getOrderCount();
+
+		// the total column's converter also applies to its sum, so this is in cents
+		Long getTotalSpentCents();
+
+		Long getLastOrderId();
+	}
 }
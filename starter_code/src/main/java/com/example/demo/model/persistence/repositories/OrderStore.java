@@ -0,0 +1,57 @@
+package com.example.demo.model.persistence.repositories;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.springframework.data.domain.Pageable;
+
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.responses.OrderLineResponse;
+import com.example.demo.model.responses.OrderResponse;
+
+/**
+ * Where orders and their lines are written and read. Every read names the user whose orders it
+ * reads, so that an implementation can keep each user's orders in one place of several; see
+ * {@link JpaOrderStore} for the single database and
+ * {@link com.example.demo.sharding.ShardedOrderStore} for orders spread over shards by user id.
+ *
+ * <p>Writes take part in the caller's transaction, so an order and the change to its user's
+ * summary commit or roll back together. {@link JpaOrderStore} commits both at once. With the
+ * orders on another database, a commit that fails between the two leaves a saved order out of its
+ * user's summary; the sharded store records every order until its transaction has committed
+ * everywhere, and the summaries of those it is left with are rebuilt in the background.
+ */
+public interface OrderStore {
+	/**
+	 * Stores a new order and assigns its id.
+	 */
+	UserOrder save(UserOrder order);
+
+	List<UserOrder> findByUser(User user);
+
+	UserOrder findByReference(String reference);
+
+	boolean existsByUserId(Long userId);
+
+	OrderRepository.Totals totalsForUser(Long userId);
+
+	Instant findCreatedAt(Long userId, Long orderId);
+
+	/**
+	 * @see OrderRepository#findResponsesByUserId(Long, Long, Pageable)
+	 */
+	List<OrderResponse> findResponsesByUserId(Long userId, Long afterId, Pageable pageable);
+
+	/**
+	 * @see OrderRepository#streamResponsesByUserId(Long)
+	 */
+	Stream<OrderResponse> streamResponsesByUserId(Long userId);
+
+	/**
+	 * Lines of the given orders of the user, grouped by order and in the order they were submitted.
+	 */
+	List<OrderLineResponse> findResponseLines(Long userId, Collection<Long> orderIds);
+}
@@ -0,0 +1,43 @@
+package com.example.demo.model.persistence.repositories;
+
+import java.time.Instant;
+import java.util.Optional;
+
+import javax.persistence.LockModeType;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.example.demo.model.persistence.UserOrderSummary;
+
+@Repository
+public interface UserOrderSummaryRepository extends JpaRepository<UserOrderSummary, Long> {
+
+	/**
+	 * Adds one order to the user's summary row in a single statement, so concurrent orders for
+	 * the same user cannot overwrite each other's counts.
+	 *
+	 * @return 1, or 0 if the user has no summary row yet
+	 */
+	@Modifying
+	@Query("update UserOrderSummary s set s.orderCount = s.orderCount + 1,"
+			+ " s.totalSpent = s.totalSpent + :totalCents,"
+			+ " s.lastOrderAt = case when s.lastOrderId is null or s.lastOrderId < :orderId"
+			+ " then :createdAt else s.lastOrderAt end,"
+			+ " s.lastOrderId = case when s.lastOrderId is null or s.lastOrderId < :orderId"
+			+ " then :orderId else s.lastOrderId end"
+			+ " where s.userId = :userId")
+	int addOrder(@Param("userId") Long userId, @Param("totalCents") long totalCents,
+			@Param("orderId") Long orderId, @Param("createdAt") Instant createdAt);
+
+	/**
+	 * Loads a user's summary row and locks it until the surrounding transaction ends.
+	 */
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("select s from UserOrderSummary s where s.userId = :userId")
+	Optional<UserOrderSummary> findForUpdate(@Param("userId") Long userId);
+}
@@ -1,11 +1,38 @@
 package com.example.demo.model.persistence.repositories;
 
+import java.util.List;
+
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import com.example.demo.cache.SecondLevelCacheConfiguration;
 import com.example.demo.model.persistence.User;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
+	@QueryHints({@QueryHint(name = "org.hibernate.cacheable", value = "true"),
+			@QueryHint(name = "org.hibernate.cacheRegion", value = SecondLevelCacheConfiguration.USER_BY_USERNAME_REGION)})
 	User findByUsername(String username);
+
+	/**
+	 * The user together with the cart, its lines and their items, in one query.
+	 */
+	@EntityGraph(attributePaths = {"cart", "cart.lines", "cart.lines.item"})
+	User findWithCartByUsername(String username);
+
+	@Query("select u.id from User u where u.username = :username")
+	Long findIdByUsername(@Param("username") String username);
+
+	/**
+	 * Keyset page of user ids greater than {@code afterId}, in ascending order.
+	 */
+	@Query("select u.id from User u where u.id > :afterId order by u.id")
+	List<Long> findIdsAfter(@Param("afterId") Long afterId, Pageable pageable);
 }
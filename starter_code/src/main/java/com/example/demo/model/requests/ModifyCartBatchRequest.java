@@ -0,0 +1,59 @@
+package com.example.demo.model.requests;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class ModifyCartBatchRequest {
+
+	@JsonProperty
+	private String username;
+
+	@JsonProperty
+	private List<Operation> operations;
+
+	public String getUsername() {
+		return username;
+	}
+
+	public void setUsername(String username) {
+		this.username = username;
+	}
+
+	public List<Operation> getOperations() {
+		return operations;
+	}
+
+	public void setOperations(List<Operation> operations) {
+		this.operations = operations;
+	}
+
+	/**
+	 * Adds {@code delta} units of an item to the cart, or removes them when {@code delta} is negative.
+	 */
+	public static class Operation {
+
+		@JsonProperty
+		private long itemId;
+
+		@JsonProperty
+		private int delta;
+
+		public long getItemId() {
+			return itemId;
+		}
+
+		public void setItemId(long itemId) {
+			this.itemId = itemId;
+		}
+
+		public int getDelta() {
+			return delta;
+		}
+
+		public void setDelta(int delta) {
+			this.delta = delta;
+		}
+	}
+
+}
@@ -0,0 +1,55 @@
+package com.example.demo.model.responses;
+
+import java.math.BigDecimal;
+
+import com.example.demo.model.persistence.CartLine;
+import com.example.demo.model.persistence.Money;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class CartLineResponse {
+
+	@JsonProperty
+	private final Long itemId;
+
+	@JsonProperty
+	private final String name;
+
+	private final long unitPrice;
+
+	@JsonProperty
+	private final int quantity;
+
+	public CartLineResponse(Long itemId, String name, Long unitPriceCents, Integer quantity) {
+		this.itemId = itemId;
+		this.name = name;
+		this.unitPrice = unitPriceCents;
+		this.quantity = quantity;
+	}
+
+	public static CartLineResponse of(CartLine line) {
+		return new CartLineResponse(line.getItemId(), line.getItem().getName(), line.getUnitPriceCents(), line.getQuantity());
+	}
+
+	public Long getItemId() {
+		return itemId;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	@JsonProperty
+	public BigDecimal getUnitPrice() {
+		return Money.toDecimal(unitPrice);
+	}
+
+	@JsonIgnore
+	public long getUnitPriceCents() {
+		return unitPrice;
+	}
+
+	public int getQuantity() {
+		return quantity;
+	}
+}
@@ -0,0 +1,63 @@
+package com.example.demo.model.responses;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.CartLine;
+import com.example.demo.model.persistence.Money;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * A cart as the cart endpoints return it: its lines and total, without the owning user.
+ */
+public class CartResponse {
+
+	@JsonProperty
+	private final Long id;
+
+	@JsonProperty
+	private final List<CartLineResponse> lines = new ArrayList<>();
+
+	private final long total;
+
+	public CartResponse(Long id, Long totalCents) {
+		this.id = id;
+		this.total = totalCents;
+	}
+
+	/**
+	 * Copies a cart that is already loaded, e.g. right after it was changed.
+	 */
+	public static CartResponse of(Cart cart) {
+		CartResponse response = new CartResponse(cart.getId(), cart.getTotalCents());
+		for (CartLine line : cart.getLines()) {
+			response.addLine(CartLineResponse.of(line));
+		}
+		return response;
+	}
+
+	public void addLine(CartLineResponse line) {
+		lines.add(line);
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public List<CartLineResponse> getLines() {
+		return lines;
+	}
+
+	@JsonProperty
+	public BigDecimal getTotal() {
+		return Money.toDecimal(total);
+	}
+
+	@JsonIgnore
+	public long getTotalCents() {
+		return total;
+	}
+}
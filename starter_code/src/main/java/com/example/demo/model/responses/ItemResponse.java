@@ -0,0 +1,60 @@
+package com.example.demo.model.responses;
+
+import java.math.BigDecimal;
+
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.Money;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * An item as the catalog endpoints return it. Read straight from the columns by
+ * {@link com.example.demo.model.persistence.repositories.ItemRepository}, so it can be cached and
+ * shared between requests without holding on to a detached entity.
+ */
+public class ItemResponse {
+
+	@JsonProperty
+	private final Long id;
+
+	@JsonProperty
+	private final String name;
+
+	private final long price;
+
+	@JsonProperty
+	private final String description;
+
+	public ItemResponse(Long id, String name, Long priceCents, String description) {
+		this.id = id;
+		this.name = name;
+		this.price = priceCents;
+		this.description = description;
+	}
+
+	public static ItemResponse of(Item item) {
+		return new ItemResponse(item.getId(), item.getName(), item.getPriceCents(), item.getDescription());
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	@JsonProperty
+	public BigDecimal getPrice() {
+		return Money.toDecimal(price);
+	}
+
+	@JsonIgnore
+	public long getPriceCents() {
+		return price;
+	}
+
+	public String getDescription() {
+		return description;
+	}
+}
@@ -0,0 +1,28 @@
+package com.example.demo.model.responses;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class OrderHistoryPage {
+
+	@JsonProperty
+	private final List<OrderResponse> orders;
+
+	// cursor to pass as "after" for the next page, null on the last page
+	@JsonProperty
+	private final Long next;
+
+	public OrderHistoryPage(List<OrderResponse> orders, Long next) {
+		this.orders = orders;
+		this.next = next;
+	}
+
+	public List<OrderResponse> getOrders() {
+		return orders;
+	}
+
+	public Long getNext() {
+		return next;
+	}
+}
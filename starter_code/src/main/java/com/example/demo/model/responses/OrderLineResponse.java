@@ -0,0 +1,64 @@
+package com.example.demo.model.responses;
+
+import java.math.BigDecimal;
+
+import com.example.demo.model.persistence.Money;
+import com.example.demo.model.persistence.OrderLine;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class OrderLineResponse {
+
+	// only used to attach the line to its order after both were read
+	@JsonIgnore
+	private final Long orderId;
+
+	@JsonProperty
+	private final Long itemId;
+
+	@JsonProperty
+	private final String name;
+
+	private final long unitPrice;
+
+	@JsonProperty
+	private final int quantity;
+
+	public OrderLineResponse(Long orderId, Long itemId, String name, Long unitPriceCents, Integer quantity) {
+		this.orderId = orderId;
+		this.itemId = itemId;
+		this.name = name;
+		this.unitPrice = unitPriceCents;
+		this.quantity = quantity;
+	}
+
+	public static OrderLineResponse of(Long orderId, OrderLine line) {
+		return new OrderLineResponse(orderId, line.getItemId(), line.getName(), line.getUnitPriceCents(), line.getQuantity());
+	}
+
+	public Long getOrderId() {
+		return orderId;
+	}
+
+	public Long getItemId() {
+		return itemId;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	@JsonProperty
+	public BigDecimal getUnitPrice() {
+		return Money.toDecimal(unitPrice);
+	}
+
+	@JsonIgnore
+	public long getUnitPriceCents() {
+		return unitPrice;
+	}
+
+	public int getQuantity() {
+		return quantity;
+	}
+}
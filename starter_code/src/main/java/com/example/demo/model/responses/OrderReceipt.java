@@ -0,0 +1,38 @@
+package com.example.demo.model.responses;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class OrderReceipt {
+
+	public enum Status {
+		QUEUED, PERSISTED, FAILED
+	}
+
+	@JsonProperty
+	private final String reference;
+
+	@JsonProperty
+	private final Status status;
+
+	// id of the stored order, null until it has been written
+	@JsonProperty
+	private final Long orderId;
+
+	public OrderReceipt(String reference, Status status, Long orderId) {
+		this.reference = reference;
+		this.status = status;
+		this.orderId = orderId;
+	}
+
+	public String getReference() {
+		return reference;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	public Long getOrderId() {
+		return orderId;
+	}
+}
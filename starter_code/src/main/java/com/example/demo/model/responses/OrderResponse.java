@@ -0,0 +1,79 @@
+package com.example.demo.model.responses;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.example.demo.model.persistence.Money;
+import com.example.demo.model.persistence.OrderLine;
+import com.example.demo.model.persistence.UserOrder;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * An order as the order endpoints return it, without the user it belongs to. History reads
+ * select the order columns and the lines in two queries and join them with {@link #addLine}.
+ */
+public class OrderResponse {
+
+	@JsonProperty
+	private final Long id;
+
+	@JsonProperty
+	private final String reference;
+
+	@JsonProperty
+	private final Instant createdAt;
+
+	private final long total;
+
+	@JsonProperty
+	private final List<OrderLineResponse> lines = new ArrayList<>();
+
+	public OrderResponse(Long id, String reference, Instant createdAt, Long totalCents) {
+		this.id = id;
+		this.reference = reference;
+		this.createdAt = createdAt;
+		this.total = totalCents;
+	}
+
+	public static OrderResponse of(UserOrder order) {
+		OrderResponse response = new OrderResponse(order.getId(), order.getReference(), order.getCreatedAt(),
+				order.getTotalCents());
+		for (OrderLine line : order.getLines()) {
+			response.addLine(OrderLineResponse.of(order.getId(), line));
+		}
+		return response;
+	}
+
+	public void addLine(OrderLineResponse line) {
+		lines.add(line);
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public String getReference() {
+		return reference;
+	}
+
+	public Instant getCreatedAt() {
+		return createdAt;
+	}
+
+	@JsonProperty
+	public BigDecimal getTotal() {
+		return Money.toDecimal(total);
+	}
+
+	@JsonIgnore
+	public long getTotalCents() {
+		return total;
+	}
+
+	public List<OrderLineResponse> getLines() {
+		return lines;
+	}
+}
@@ -0,0 +1,43 @@
+package com.example.demo.outbox;
+
+import com.example.demo.model.persistence.OrderEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Appends every delivered event to a file as one JSON document per line. A redelivered batch is
+ * appended again, so readers of the file skip event ids they have already seen.
+ */
+public class FileOrderEventSink implements OrderEventSink {
+    private final Path file;
+    private final ObjectMapper objectMapper;
+
+    public FileOrderEventSink(Path file, ObjectMapper objectMapper) {
+        this.file = file;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public synchronized void deliver(List<OrderEvent> events) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        for (OrderEvent event : events) {
+            lines.append(objectMapper.writeValueAsString(event)).append('\n');
+        }
+        // every event is serialized before the file is touched, so a bad event appends nothing
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write(lines.toString());
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.demo.outbox;
+
+import com.example.demo.model.persistence.OrderEvent;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the most recent {@code capacity} delivered events in memory, each event id once, and
+ * counts the redeliveries it skipped. Meant for tests and local runs.
+ */
+public class InMemoryOrderEventSink implements OrderEventSink {
+    private final Map<String, OrderEvent> events;
+    private long duplicates;
+
+    public InMemoryOrderEventSink(int capacity) {
+        this.events = new LinkedHashMap<String, OrderEvent>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, OrderEvent> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    @Override
+    public synchronized void deliver(List<OrderEvent> batch) {
+        for (OrderEvent event : batch) {
+            if (events.putIfAbsent(event.getEventId(), event) != null) {
+                duplicates++;
+            }
+        }
+    }
+
+    public synchronized List<OrderEvent> getEvents() {
+        return new ArrayList<>(events.values());
+    }
+
+    public synchronized long getDuplicateCount() {
+        return duplicates;
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.demo.outbox;
+
+import com.example.demo.model.persistence.OrderEvent;
+
+import java.util.List;
+
+/**
+ * Destination of the order events {@link OrderOutboxPublisher} takes from the outbox.
+ */
+public interface OrderEventSink {
+    /**
+     * Delivers a batch of events, oldest first. Returning acknowledges the whole batch; throwing
+     * leaves all of it in the outbox to be delivered again. A sink can therefore see an event more
+     * than once and should skip event ids it has already handled.
+     */
+    void deliver(List<OrderEvent> events) throws Exception;
+}
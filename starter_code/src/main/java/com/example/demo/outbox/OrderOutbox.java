@@ -0,0 +1,35 @@
+package com.example.demo.outbox;
+
+import com.example.demo.model.persistence.OrderEvent;
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.persistence.repositories.OrderEventStore;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Records the events of stored orders for {@link OrderOutboxPublisher} to deliver. An event is
+ * written in the transaction that stores its order and to the same database, by the
+ * {@link OrderEventStore} that matches the order store, so it exists exactly when the order does,
+ * and nothing that reacts to orders has to run while the order is being placed.
+ */
+@Component
+public class OrderOutbox {
+    private final OrderEventStore eventStore;
+
+    public OrderOutbox(OrderEventStore eventStore) {
+        this.eventStore = eventStore;
+    }
+
+    /**
+     * Adds an {@link OrderEvent#ORDER_PLACED} event for an order that is being stored in the
+     * current transaction.
+     */
+    public OrderEvent append(UserOrder order) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Order events must be written in the transaction that stores the order");
+        }
+        OrderEvent event = OrderEvent.placed(order);
+        eventStore.append(event);
+        return event;
+    }
+}
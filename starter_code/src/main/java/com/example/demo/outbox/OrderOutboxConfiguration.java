@@ -0,0 +1,31 @@
+package com.example.demo.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Paths;
+
+/**
+ * Chooses the {@link OrderEventSink} with {@code order.outbox.sink}: {@code memory}, the default,
+ * or {@code file}, which appends to {@code order.outbox.file}. Any other value leaves the sink to
+ * an {@link OrderEventSink} bean of the application's own.
+ */
+@Configuration
+public class OrderOutboxConfiguration {
+
+    @Bean
+    @ConditionalOnProperty(name = "order.outbox.sink", havingValue = "memory", matchIfMissing = true)
+    public InMemoryOrderEventSink inMemoryOrderEventSink(@Value("${order.outbox.memory.capacity:10000}") int capacity) {
+        return new InMemoryOrderEventSink(capacity);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "order.outbox.sink", havingValue = "file")
+    public FileOrderEventSink fileOrderEventSink(@Value("${order.outbox.file:order-events.jsonl}") String file,
+                                                 ObjectMapper objectMapper) {
+        return new FileOrderEventSink(Paths.get(file), objectMapper);
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.demo.outbox;
+
+import com.example.demo.model.persistence.OrderEvent;
+import com.example.demo.model.persistence.repositories.OrderEventStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Delivers the outbox to the {@link OrderEventSink}. Every {@code order.outbox.poll-interval} a
+ * background thread goes through the outboxes of the {@link OrderEventStore}, one per order shard
+ * when orders are sharded. From each it takes up to {@code order.outbox.batch-size} of the oldest
+ * events, hands them to the sink and deletes them once the sink has returned, repeating while full
+ * batches come back. Events keep their order within an outbox, and so per user.
+ *
+ * <p>Delivery is at least once: a batch the sink failed on stays in the outbox and is offered
+ * again on the next poll, and so is one whose deletion did not commit after the sink took it.
+ * Consumers tell redeliveries apart by {@link OrderEvent#getEventId()}.
+ *
+ * <p>With {@code order.outbox.enabled=false} the background thread is not started and events stay
+ * in the outbox until {@link #publishPending()} is called.
+ */
+@Component
+public class OrderOutboxPublisher implements SmartLifecycle {
+    private static final Logger log = LoggerFactory.getLogger(OrderOutboxPublisher.class);
+
+    private final OrderEventStore eventStore;
+    private final OrderEventSink sink;
+    private final int batchSize;
+    private final long pollMillis;
+    private final boolean enabled;
+
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private ScheduledExecutorService executor;
+
+    public OrderOutboxPublisher(OrderEventStore eventStore, OrderEventSink sink,
+                                @Value("${order.outbox.batch-size:100}") int batchSize,
+                                @Value("${order.outbox.poll-interval:PT1S}") Duration pollInterval,
+                                @Value("${order.outbox.enabled:true}") boolean enabled) {
+        this.eventStore = eventStore;
+        this.sink = sink;
+        this.batchSize = batchSize;
+        this.pollMillis = pollInterval.toMillis();
+        this.enabled = enabled;
+    }
+
+    /**
+     * Delivers batches until every outbox is empty or the sink fails.
+     *
+     * @return the number of events delivered
+     */
+    public synchronized int publishPending() {
+        int count = 0;
+        for (int outbox = 0; outbox < eventStore.outboxCount(); outbox++) {
+            List<OrderEvent> batch;
+            do {
+                batch = eventStore.findOldest(outbox, batchSize);
+                if (batch.isEmpty()) {
+                    break;
+                }
+                try {
+                    sink.deliver(batch);
+                } catch (Exception e) {
+                    failed.add(batch.size());
+                    log.warn("Could not deliver " + batch.size() + " order events, retrying in " + pollMillis + " ms", e);
+                    return count;
+                }
+                List<Long> ids = new ArrayList<>(batch.size());
+                for (OrderEvent event : batch) {
+                    ids.add(event.getId());
+                }
+                eventStore.delete(outbox, ids);
+                delivered.add(batch.size());
+                count += batch.size();
+            } while (batch.size() == batchSize);
+        }
+        return count;
+    }
+
+    private void poll() {
+        try {
+            publishPending();
+        } catch (RuntimeException e) {
+            // keep the schedule alive; the events are still in the outbox
+            log.error("Order outbox poll failed", e);
+        }
+    }
+
+    /**
+     * How long the oldest undelivered event has been waiting, or 0 if the outbox is empty.
+     */
+    public long getLagMillis() {
+        Instant oldest = eventStore.findOldestOccurredAt();
+        return oldest == null ? 0 : Math.max(0, Duration.between(oldest, Instant.now()).toMillis());
+    }
+
+    public long getPendingCount() {
+        return eventStore.count();
+    }
+
+    public long getDeliveredCount() {
+        return delivered.sum();
+    }
+
+    /**
+     * Events offered to the sink in batches it failed on, counted once per attempt.
+     */
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    @Override
+    public boolean isAutoStartup() {
+        return enabled;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "order-outbox-publisher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::poll, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Lets a delivery in progress finish. Events still in the outbox are delivered after the
+     * next start.
+     */
+    @Override
+    public void stop() {
+        ScheduledExecutorService current;
+        synchronized (this) {
+            current = executor;
+            executor = null;
+        }
+        if (current == null) {
+            return;
+        }
+        current.shutdown();
+        try {
+            current.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return executor != null;
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.demo.security;
+
+import org.springframework.security.core.AuthenticatedPrincipal;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Optional;
+
+/**
+ * Principal built from a verified token. Besides the username it carries the user and cart
+ * primary keys issued at login, so controllers can go straight to those rows instead of looking
+ * the user up by name. Both ids are {@code null} for tokens issued without them.
+ */
+public final class AuthenticatedUser implements AuthenticatedPrincipal {
+    private final String username;
+    private final Long userId;
+    private final Long cartId;
+
+    public AuthenticatedUser(String username, Long userId, Long cartId) {
+        this.username = username;
+        this.userId = userId;
+        this.cartId = cartId;
+    }
+
+    /**
+     * Returns the principal of the current request if it was authenticated as {@code username}
+     * with a token that carries both ids.
+     */
+    public static Optional<AuthenticatedUser> current(String username) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !(authentication.getPrincipal() instanceof AuthenticatedUser)) {
+            return Optional.empty();
+        }
+        AuthenticatedUser user = (AuthenticatedUser) authentication.getPrincipal();
+        if (!user.username.equals(username) || user.userId == null || user.cartId == null) {
+            return Optional.empty();
+        }
+        return Optional.of(user);
+    }
+
+    @Override
+    public String getName() {
+        return username;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public Long getCartId() {
+        return cartId;
+    }
+
+    @Override
+    public String toString() {
+        return username;
+    }
+}
@@ -1,13 +1,15 @@
 package com.example.demo.security;
 
 import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTCreator;
 import com.example.demo.model.requests.CreateUserRequest;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpHeaders;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
-import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
 import javax.servlet.FilterChain;
@@ -18,8 +20,6 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Date;
 
-import static com.auth0.jwt.algorithms.Algorithm.HMAC512;
-
 public class JWTAuthenticationFilter extends UsernamePasswordAuthenticationFilter {
     private AuthenticationManager authenticationManager;
 
@@ -49,10 +49,30 @@ public class JWTAuthenticationFilter extends UsernamePasswordAuthenticationFilte
                                             FilterChain chain,
                                             Authentication auth) throws IOException, ServletException {
 
-        String token = JWT.create()
+        JWTCreator.Builder builder = JWT.create()
                 .withSubject(((org.springframework.security.core.userdetails.User) auth.getPrincipal()).getUsername())
-                .withExpiresAt(new Date(System.currentTimeMillis() + SecurityConstants.EXPIRATION_TIME))
-                .sign(HMAC512(SecurityConstants.SECRET.getBytes()));
+                .withExpiresAt(new Date(System.currentTimeMillis() + SecurityConstants.EXPIRATION_TIME));
+        if (auth.getPrincipal() instanceof UserAccountDetails) {
+            UserAccountDetails account = (UserAccountDetails) auth.getPrincipal();
+            builder.withClaim(SecurityConstants.USER_ID_CLAIM, account.getUserId());
+            if (account.getCartId() != null) {
+                builder.withClaim(SecurityConstants.CART_ID_CLAIM, account.getCartId());
+            }
+        }
+        String token = builder.sign(JWTTokenVerifier.ALGORITHM);
         res.addHeader(SecurityConstants.HEADER_STRING, SecurityConstants.TOKEN_PREFIX + token);
     }
+
+    @Override
+    protected void unsuccessfulAuthentication(HttpServletRequest req,
+                                              HttpServletResponse res,
+                                              AuthenticationException failed) throws IOException, ServletException {
+        if (failed instanceof PasswordEncoderBusyException) {
+            SecurityContextHolder.clearContext();
+            res.setHeader(HttpHeaders.RETRY_AFTER, SecurityConstants.BUSY_RETRY_AFTER_SECONDS);
+            res.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, failed.getMessage());
+            return;
+        }
+        super.unsuccessfulAuthentication(req, res, failed);
+    }
 }
@@ -1,11 +1,9 @@
 package com.example.demo.security;
 
-import com.auth0.jwt.algorithms.Algorithm;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
-import com.auth0.jwt.JWT;
 
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
@@ -15,8 +13,12 @@ import java.io.IOException;
 import java.util.ArrayList;
 
 public class JWTAuthenticationVerificationFilter extends BasicAuthenticationFilter {
-    public JWTAuthenticationVerificationFilter(AuthenticationManager authenticationManager) {
+    private final JWTTokenVerifier tokenVerifier;
+
+    public JWTAuthenticationVerificationFilter(AuthenticationManager authenticationManager,
+                                               JWTTokenVerifier tokenVerifier) {
         super(authenticationManager);
+        this.tokenVerifier = tokenVerifier;
     }
 
     @Override
@@ -38,10 +40,8 @@ public class JWTAuthenticationVerificationFilter extends BasicAuthenticationFilt
     private UsernamePasswordAuthenticationToken getAuthentication(HttpServletRequest req) {
         String token = req.getHeader(SecurityConstants.HEADER_STRING);
         if (token != null) {
-            String user = JWT.require(Algorithm.HMAC512(SecurityConstants.SECRET.getBytes())).build()
-                    .verify(token.replace(SecurityConstants.TOKEN_PREFIX, ""))
-                    .getSubject();
-            if (user != null) {
+            AuthenticatedUser user = tokenVerifier.verify(token.replace(SecurityConstants.TOKEN_PREFIX, ""));
+            if (user.getUsername() != null) {
                 return new UsernamePasswordAuthenticationToken(user, null, new ArrayList<>());
             }
             return null;
@@ -0,0 +1,115 @@
+package com.example.demo.security;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verifies bearer tokens with a single precomputed HMAC512 verifier and remembers the tokens it
+ * has already accepted, so repeated requests with the same token skip signature checking and
+ * decoding. Cache entries are keyed by a SHA-256 digest of the token and expire at the token's
+ * own {@code exp} claim.
+ */
+@Component
+public class JWTTokenVerifier {
+    static final Algorithm ALGORITHM = Algorithm.HMAC512(SecurityConstants.SECRET.getBytes());
+
+    private static final JWTVerifier VERIFIER = JWT.require(ALGORITHM).build();
+
+    private final Cache<ByteBuffer, VerifiedToken> verifiedTokens;
+
+    public JWTTokenVerifier(@Value("${security.jwt.cache.maximum-size:10000}") long maximumSize) {
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new UntilTokenExpiry())
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the principal described by the given token.
+     *
+     * @throws JWTVerificationException if the token is malformed, tampered with or expired
+     */
+    public AuthenticatedUser verify(String token) {
+        ByteBuffer key = digest(token);
+        VerifiedToken verified = verifiedTokens.getIfPresent(key);
+        if (verified != null) {
+            return verified.principal;
+        }
+
+        DecodedJWT jwt = VERIFIER.verify(token);
+        AuthenticatedUser principal = new AuthenticatedUser(jwt.getSubject(),
+                jwt.getClaim(SecurityConstants.USER_ID_CLAIM).asLong(),
+                jwt.getClaim(SecurityConstants.CART_ID_CLAIM).asLong());
+        Date expiresAt = jwt.getExpiresAt();
+        if (expiresAt != null) {
+            verifiedTokens.put(key, new VerifiedToken(principal, expiresAt.getTime()));
+        }
+        return principal;
+    }
+
+    public CacheStats stats() {
+        return verifiedTokens.stats();
+    }
+
+    public long hitCount() {
+        return verifiedTokens.stats().hitCount();
+    }
+
+    public long missCount() {
+        return verifiedTokens.stats().missCount();
+    }
+
+    private static ByteBuffer digest(String token) {
+        try {
+            return ByteBuffer.wrap(MessageDigest.getInstance("SHA-256")
+                    .digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static final class VerifiedToken {
+        final AuthenticatedUser principal;
+        final long expiresAtMillis;
+
+        VerifiedToken(AuthenticatedUser principal, long expiresAtMillis) {
+            this.principal = principal;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+
+    private static final class UntilTokenExpiry implements Expiry<ByteBuffer, VerifiedToken> {
+        @Override
+        public long expireAfterCreate(ByteBuffer key, VerifiedToken value, long currentTime) {
+            long remainingMillis = value.expiresAtMillis - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remainingMillis));
+        }
+
+        @Override
+        public long expireAfterUpdate(ByteBuffer key, VerifiedToken value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(ByteBuffer key, VerifiedToken value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
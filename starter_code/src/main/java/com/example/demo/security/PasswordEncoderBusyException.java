@@ -0,0 +1,15 @@
+package com.example.demo.security;
+
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
+
+/**
+ * Thrown by {@link BoundedPasswordEncoder} when it cannot take on more hashing work. It is an
+ * {@link InternalAuthenticationServiceException} so that a login attempt hitting it is reported
+ * as an overloaded server rather than as bad credentials.
+ */
+public class PasswordEncoderBusyException extends InternalAuthenticationServiceException {
+
+    public PasswordEncoderBusyException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
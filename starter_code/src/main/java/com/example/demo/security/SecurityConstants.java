@@ -6,5 +6,8 @@ public class SecurityConstants {
     public static final String TOKEN_PREFIX = "Bearer ";
     public static final String HEADER_STRING = "Authorization";
     public static final String SIGN_UP_URL = "/api/user/create";
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String CART_ID_CLAIM = "cid";
+    public static final String BUSY_RETRY_AFTER_SECONDS = "1";
 
 }
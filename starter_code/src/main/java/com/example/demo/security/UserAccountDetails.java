@@ -0,0 +1,28 @@
+package com.example.demo.security;
+
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collections;
+
+/**
+ * {@link User} details that also remember the ids of the account and its cart, so they can be
+ * written into the token at login.
+ */
+public class UserAccountDetails extends User {
+    private final long userId;
+    private final Long cartId;
+
+    public UserAccountDetails(String username, String password, long userId, Long cartId) {
+        super(username, password, Collections.emptyList());
+        this.userId = userId;
+        this.cartId = cartId;
+    }
+
+    public long getUserId() {
+        return userId;
+    }
+
+    public Long getCartId() {
+        return cartId;
+    }
+}
@@ -7,8 +7,6 @@ import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
-import java.util.Collections;
-
 @Service
 public class UserDetailsServiceImp implements UserDetailsService {
     private final UserRepository userRepository;
@@ -23,6 +21,7 @@ public class UserDetailsServiceImp implements UserDetailsService {
         if (user == null) {
             throw new UsernameNotFoundException(username);
         }
-        return new org.springframework.security.core.userdetails.User(user.getUsername(), user.getPassword(), Collections.emptyList());
+        return new UserAccountDetails(user.getUsername(), user.getPassword(), user.getId(),
+                user.getCart() == null ? null : user.getCart().getId());
     }
 }
@@ -0,0 +1,12 @@
+package com.example.demo.service;
+
+/**
+ * Thrown by {@link CartService} when a cart kept changing underneath an update until it ran out
+ * of attempts.
+ */
+public class CartConflictException extends RuntimeException {
+
+    public CartConflictException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
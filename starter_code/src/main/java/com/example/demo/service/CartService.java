@@ -0,0 +1,148 @@
+package com.example.demo.service;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.repositories.CartRepository;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.responses.CartLineResponse;
+import com.example.demo.model.responses.CartResponse;
+import com.example.demo.security.AuthenticatedUser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Optional;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * Read-modify-write of a user's cart that does not lose concurrent changes.
+ *
+ * <p>{@link Cart} is versioned, so a change computed from a cart that someone else has saved in
+ * the meantime fails on flush instead of overwriting it; the update is then re-applied to a fresh
+ * copy, up to {@code cart.update.max-attempts} times. Within this process, updates of the same
+ * cart also take one of {@code cart.update.lock-stripes} locks first, so concurrent requests for
+ * one cart queue up instead of failing and retrying against each other; the version check is
+ * what keeps other instances of the application from losing updates.
+ */
+@Service
+public class CartService {
+    private static final Logger log = LoggerFactory.getLogger(CartService.class);
+
+    private final UserRepository userRepository;
+    private final CartRepository cartRepository;
+    private final TransactionTemplate transaction;
+    private final Lock[] stripes;
+    private final int maxAttempts;
+
+    public CartService(UserRepository userRepository, CartRepository cartRepository,
+                       PlatformTransactionManager transactionManager,
+                       @Value("${cart.update.lock-stripes:256}") int lockStripes,
+                       @Value("${cart.update.max-attempts:3}") int maxAttempts) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("cart.update.max-attempts must be at least 1");
+        }
+        this.userRepository = userRepository;
+        this.cartRepository = cartRepository;
+        this.transaction = new TransactionTemplate(transactionManager);
+        // rounded up to a power of two so that a stripe is picked by masking; 0 turns the locks off
+        int size = 0;
+        if (lockStripes > 0) {
+            size = 1;
+            while (size < lockStripes) {
+                size <<= 1;
+            }
+        }
+        this.stripes = new Lock[size];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * Applies {@code change} to the cart of {@code username} and saves it, retrying on conflicting
+     * concurrent updates. {@code change} may run more than once, each time on a freshly loaded cart,
+     * and returns false to abandon the update without saving anything.
+     *
+     * @return the saved cart, or empty if the user has no cart or {@code change} abandoned the update
+     * @throws CartConflictException if every attempt conflicted with another update
+     */
+    public Optional<Cart> update(String username, Predicate<Cart> change) {
+        Lock lock = stripeFor(username);
+        if (lock != null) {
+            lock.lock();
+        }
+        try {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    return transaction.execute(status -> {
+                        Optional<Cart> cart = findCart(username).filter(change);
+                        cart.ifPresent(found -> {
+                            cartRepository.save(found);
+                            // surface a version conflict here rather than at commit
+                            cartRepository.flush();
+                        });
+                        return cart;
+                    });
+                } catch (OptimisticLockingFailureException | DataIntegrityViolationException e) {
+                    // the latter when two updates insert a line for the same item
+                    if (attempt >= maxAttempts) {
+                        throw new CartConflictException("Cart of " + username + " still changing after "
+                                + attempt + " attempts", e);
+                    }
+                    log.debug("Cart of " + username + " changed concurrently, retrying", e);
+                }
+            }
+        } finally {
+            if (lock != null) {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Reads the cart of {@code username} column by column, without loading the cart, its user or
+     * its items as entities.
+     */
+    public Optional<CartResponse> find(String username) {
+        Optional<AuthenticatedUser> principal = AuthenticatedUser.current(username);
+        Optional<CartResponse> cart = principal.isPresent()
+                ? cartRepository.findResponseById(principal.get().getCartId())
+                : cartRepository.findResponseByUsername(username);
+        cart.ifPresent(found -> {
+            for (CartLineResponse line : cartRepository.findResponseLines(found.getId())) {
+                found.addLine(line);
+            }
+        });
+        return cart;
+    }
+
+    private Lock stripeFor(String username) {
+        if (stripes.length == 0) {
+            return null;
+        }
+        int hash = username.hashCode();
+        return stripes[(hash ^ hash >>> 16) & (stripes.length - 1)];
+    }
+
+    /**
+     * Finds the cart of {@code username} with its lines and their items. When the caller's token
+     * already carries the cart id the cart is loaded by primary key, otherwise it is reached
+     * through the user.
+     */
+    private Optional<Cart> findCart(String username) {
+        Optional<AuthenticatedUser> principal = AuthenticatedUser.current(username);
+        if (principal.isPresent()) {
+            return cartRepository.findWithLinesById(principal.get().getCartId());
+        }
+        User user = userRepository.findWithCartByUsername(username);
+        return user == null ? Optional.empty() : Optional.ofNullable(user.getCart());
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.demo.service;
+
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.model.responses.ItemResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Read-through cache of the item catalog in front of {@link ItemRepository}. Lookups are read as
+ * {@link ItemResponse} projections rather than entities, so what is cached and shared between
+ * requests is immutable.
+ * <p>
+ * Lookups by id, by name and of the full listing are cached separately, each bounded by
+ * {@code catalog.cache.maximum-size} entries and expired {@code catalog.cache.time-to-live}
+ * after being loaded. Cache misses are read in a read-only transaction, from the replica when
+ * one is configured. Writes must go through {@link #save(Item)} (or be followed by
+ * {@link #invalidate(Long)}) so that readers do not keep serving the old row.
+ * <p>
+ * The service also keeps the {@link ItemSearchIndex} in step with the table: it is filled from
+ * the repository once the application is ready and updated on every save or invalidation.
+ */
+@Service
+public class ItemCatalogService {
+    private static final Logger log = LoggerFactory.getLogger(ItemCatalogService.class);
+    private static final String ALL_ITEMS = "all";
+    private static final int INDEX_PAGE_SIZE = 1000;
+
+    private final ItemRepository itemRepository;
+    private final ItemSearchIndex searchIndex;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Cache<Long, Optional<ItemResponse>> itemsById;
+    private final Cache<String, List<ItemResponse>> itemsByName;
+    private final Cache<String, List<ItemResponse>> allItems;
+
+    public ItemCatalogService(ItemRepository itemRepository, ItemSearchIndex searchIndex,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${catalog.cache.maximum-size:10000}") long maximumSize,
+                              @Value("${catalog.cache.time-to-live:PT10M}") Duration timeToLive) {
+        this.itemRepository = itemRepository;
+        this.searchIndex = searchIndex;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.itemsById = newCache(maximumSize, timeToLive);
+        this.itemsByName = newCache(maximumSize, timeToLive);
+        this.allItems = newCache(1, timeToLive);
+    }
+
+    private static <K, V> Cache<K, V> newCache(long maximumSize, Duration timeToLive) {
+        return Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive)
+                .recordStats()
+                .build();
+    }
+
+    public List<ItemResponse> findAll() {
+        return allItems.get(ALL_ITEMS, key -> readOnlyTransaction.execute(status ->
+                Collections.unmodifiableList(itemRepository.findAllResponses())));
+    }
+
+    public Optional<ItemResponse> findById(Long id) {
+        return itemsById.get(id, key -> readOnlyTransaction.execute(status -> itemRepository.findResponseById(key)));
+    }
+
+    /**
+     * Returns the items with exactly this name, or {@code null} when the repository has none.
+     */
+    public List<ItemResponse> findByName(String name) {
+        return itemsByName.get(name, key -> {
+            List<ItemResponse> items = readOnlyTransaction.execute(status -> itemRepository.findResponsesByName(key));
+            return items == null ? null : Collections.unmodifiableList(items);
+        });
+    }
+
+    /**
+     * Items whose name or description match every word of {@code query}, best match first.
+     */
+    public List<ItemResponse> search(String query, int limit) {
+        return searchIndex.search(query, limit).stream().map(ItemResponse::of).collect(Collectors.toList());
+    }
+
+    public Item save(Item item) {
+        Item saved = itemRepository.save(item);
+        evict(saved.getId());
+        searchIndex.index(saved);
+        return saved;
+    }
+
+    /**
+     * Drops every cached view that may contain the given item and re-reads it into the search
+     * index. Name lookups are cleared as a whole because a rename changes which name key the
+     * item was cached under.
+     */
+    public void invalidate(Long id) {
+        evict(id);
+        Optional<Item> item = itemRepository.findById(id);
+        if (item.isPresent()) {
+            searchIndex.index(item.get());
+        } else {
+            searchIndex.remove(id);
+        }
+    }
+
+    public void invalidateAll() {
+        itemsById.invalidateAll();
+        itemsByName.invalidateAll();
+        allItems.invalidateAll();
+        rebuildSearchIndex();
+    }
+
+    private void evict(Long id) {
+        itemsById.invalidate(id);
+        itemsByName.invalidateAll();
+        allItems.invalidateAll();
+    }
+
+    /**
+     * Loads every item into the search index, a page at a time.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildSearchIndex() {
+        List<Item> items = new ArrayList<>();
+        Pageable pageable = PageRequest.of(0, INDEX_PAGE_SIZE, Sort.by("id"));
+        Slice<Item> page;
+        do {
+            page = itemRepository.findAll(pageable);
+            items.addAll(page.getContent());
+            pageable = page.nextPageable();
+        } while (page.hasNext());
+        searchIndex.replaceAll(items);
+        log.info("Indexed " + searchIndex.size() + " items for search");
+    }
+
+    /**
+     * Hit ratio and load time statistics per lookup kind, for sizing the cache.
+     */
+    public Map<String, CacheStats> stats() {
+        Map<String, CacheStats> stats = new LinkedHashMap<>();
+        stats.put("items.byId", itemsById.stats());
+        stats.put("items.byName", itemsByName.stats());
+        stats.put("items.all", allItems.stats());
+        return stats;
+    }
+}
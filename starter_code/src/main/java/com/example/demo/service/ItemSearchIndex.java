@@ -0,0 +1,467 @@
+package com.example.demo.service;
+
+import com.example.demo.model.persistence.Item;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over item names and descriptions for type-ahead search.
+ * <p>
+ * Text is split into lower-case tokens. Each distinct token (term) has one posting list per
+ * field, and every term is also filed under its trigrams and its one- and two-letter prefixes,
+ * so a query token resolves to the terms it equals, starts or occurs inside of without scanning
+ * the vocabulary. A query matches an item when every query token matches one of the item's
+ * terms. A token scores higher for a match in the name than in the description, and for a whole
+ * word over a prefix over a match inside a word; the item's score is the sum over the tokens.
+ * <p>
+ * Search walks the postings of the most selective query token tier by tier, best possible score
+ * first, and stops as soon as no unseen item can still make the top {@code limit}. Items with
+ * equal scores are ranked in the order they were indexed. This keeps unselective queries such as
+ * a two-letter prefix from scoring the whole catalog.
+ * <p>
+ * Updates replace an item's document: the old document is tombstoned and a new one appended,
+ * and posting lists are compacted once tombstones outnumber live documents.
+ */
+@Component
+public class ItemSearchIndex {
+    public static final int DEFAULT_LIMIT = 10;
+    public static final int MAX_LIMIT = 100;
+
+    // integer weights keep score sums exact, which the early exit in search relies on
+    private static final int NAME_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+    private static final int EXACT = 10;
+    private static final int PREFIX = 7;
+    private static final int INFIX = 4;
+
+    private static final Comparator<Match> WORST_FIRST = Comparator
+            .comparingInt((Match m) -> m.score)
+            .thenComparing(Comparator.comparingInt((Match m) -> m.docId).reversed());
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private List<Doc> docs = new ArrayList<>();
+    private Map<Long, Integer> docIdsByItem = new HashMap<>();
+    private Map<String, Postings> namePostings = new HashMap<>();
+    private Map<String, Postings> descriptionPostings = new HashMap<>();
+    private Map<String, Set<String>> termsByGram = new HashMap<>();
+    private int tombstones;
+
+    /**
+     * Adds the item, or replaces what is indexed for it if it was indexed before.
+     */
+    public void index(Item item) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(item.getId());
+            addLocked(item);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long itemId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(itemId);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the whole index with the given items. The new index is built before the lock is
+     * taken, so searches keep running against the old one meanwhile.
+     */
+    public void replaceAll(Iterable<Item> items) {
+        ItemSearchIndex fresh = new ItemSearchIndex();
+        for (Item item : items) {
+            fresh.removeLocked(item.getId());
+            fresh.addLocked(item);
+        }
+        lock.writeLock().lock();
+        try {
+            docs = fresh.docs;
+            docIdsByItem = fresh.docIdsByItem;
+            namePostings = fresh.namePostings;
+            descriptionPostings = fresh.descriptionPostings;
+            termsByGram = fresh.termsByGram;
+            tombstones = fresh.tombstones;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docIdsByItem.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} items matching every token of {@code query}, best match first.
+     */
+    public List<Item> search(String query, int limit) {
+        String[] tokens = new LinkedHashSet<>(Arrays.asList(tokenize(query))).toArray(new String[0]);
+        if (tokens.length == 0 || limit <= 0) {
+            return Collections.emptyList();
+        }
+        lock.readLock().lock();
+        try {
+            return searchLocked(tokens, Math.min(limit, MAX_LIMIT));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Item> searchLocked(String[] tokens, int limit) {
+        List<List<Tier>> tiersByToken = new ArrayList<>(tokens.length);
+        int driver = -1;
+        long driverSize = Long.MAX_VALUE;
+        for (int i = 0; i < tokens.length; i++) {
+            List<Tier> tiers = tiers(tokens[i]);
+            if (tiers.isEmpty()) {
+                return Collections.emptyList();
+            }
+            tiersByToken.add(tiers);
+            long size = 0;
+            for (Tier tier : tiers) {
+                size += tier.size();
+            }
+            if (size < driverSize) {
+                driver = i;
+                driverSize = size;
+            }
+        }
+        // the most any other token can add to an item's score
+        int othersMax = 0;
+        for (int i = 0; i < tokens.length; i++) {
+            if (i != driver) {
+                othersMax += tiersByToken.get(i).get(0).weight;
+            }
+        }
+
+        PriorityQueue<Match> best = new PriorityQueue<>(limit + 1, WORST_FIRST);
+        Set<Integer> seen = new HashSet<>();
+        for (Tier tier : tiersByToken.get(driver)) {
+            int bound = tier.weight + othersMax;
+            if (best.size() == limit && best.peek().score > bound) {
+                break;
+            }
+            // visit the tier's items in indexing order so ties are settled without seeing them all
+            PriorityQueue<Cursor> cursors = new PriorityQueue<>(Comparator.comparingInt(Cursor::docId));
+            for (Postings postings : tier.postings) {
+                cursors.add(new Cursor(postings));
+            }
+            while (!cursors.isEmpty()) {
+                int docId = cursors.peek().docId();
+                // the rest of the tier scores at most bound and, on a tie, loses on indexing order
+                if (best.size() == limit && (best.peek().score > bound
+                        || best.peek().score == bound && best.peek().docId < docId)) {
+                    break;
+                }
+                Cursor cursor = cursors.poll();
+                if (cursor.advance()) {
+                    cursors.add(cursor);
+                }
+                Doc doc = docs.get(docId);
+                if (doc == null || !seen.add(docId)) {
+                    continue;
+                }
+                int score = score(doc, tokens);
+                if (score > 0) {
+                    best.add(new Match(docId, doc, score));
+                    if (best.size() > limit) {
+                        best.poll();
+                    }
+                }
+            }
+        }
+
+        Item[] ranked = new Item[best.size()];
+        for (int i = ranked.length - 1; i >= 0; i--) {
+            ranked[i] = best.poll().doc.item;
+        }
+        return Arrays.asList(ranked);
+    }
+
+    /**
+     * The posting lists a query token reaches, grouped by field and kind of match and ordered
+     * from the highest scoring group down. Empty groups are left out.
+     */
+    private List<Tier> tiers(String token) {
+        Tier nameExact = new Tier(NAME_WEIGHT * EXACT);
+        Tier namePrefix = new Tier(NAME_WEIGHT * PREFIX);
+        Tier nameInfix = new Tier(NAME_WEIGHT * INFIX);
+        Tier descriptionExact = new Tier(DESCRIPTION_WEIGHT * EXACT);
+        Tier descriptionPrefix = new Tier(DESCRIPTION_WEIGHT * PREFIX);
+        Tier descriptionInfix = new Tier(DESCRIPTION_WEIGHT * INFIX);
+        for (String term : matchingTerms(token)) {
+            Postings name = namePostings.get(term);
+            Postings description = descriptionPostings.get(term);
+            if (term.equals(token)) {
+                nameExact.add(name);
+                descriptionExact.add(description);
+            } else if (term.startsWith(token)) {
+                namePrefix.add(name);
+                descriptionPrefix.add(description);
+            } else {
+                nameInfix.add(name);
+                descriptionInfix.add(description);
+            }
+        }
+        List<Tier> tiers = new ArrayList<>(6);
+        for (Tier tier : Arrays.asList(nameExact, namePrefix, descriptionExact, nameInfix, descriptionPrefix,
+                descriptionInfix)) {
+            if (!tier.postings.isEmpty()) {
+                tiers.add(tier);
+            }
+        }
+        return tiers;
+    }
+
+    /**
+     * Terms that the query token is a prefix of (for one- and two-letter tokens) or a substring
+     * of (for longer ones).
+     */
+    private Collection<String> matchingTerms(String token) {
+        if (token.length() < 3) {
+            Set<String> terms = termsByGram.get("^" + token);
+            return terms == null ? Collections.emptySet() : terms;
+        }
+        Set<String> smallest = null;
+        for (int i = 0; i + 3 <= token.length(); i++) {
+            Set<String> terms = termsByGram.get(token.substring(i, i + 3));
+            if (terms == null) {
+                return Collections.emptySet();
+            }
+            if (smallest == null || terms.size() < smallest.size()) {
+                smallest = terms;
+            }
+        }
+        List<String> matches = new ArrayList<>();
+        for (String term : smallest) {
+            if (term.contains(token)) {
+                matches.add(term);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Sum over the query tokens of the best match each finds in the document, or 0 if any token
+     * finds none.
+     */
+    private static int score(Doc doc, String[] tokens) {
+        int total = 0;
+        for (String token : tokens) {
+            int best = Math.max(
+                    NAME_WEIGHT * bestMatch(doc.nameTerms, token),
+                    DESCRIPTION_WEIGHT * bestMatch(doc.descriptionTerms, token));
+            if (best == 0) {
+                return 0;
+            }
+            total += best;
+        }
+        return total;
+    }
+
+    private static int bestMatch(String[] terms, String token) {
+        int best = 0;
+        for (String term : terms) {
+            if (term.equals(token)) {
+                return EXACT;
+            }
+            if (term.startsWith(token)) {
+                best = Math.max(best, PREFIX);
+            } else if (best < INFIX && token.length() >= 3 && term.contains(token)) {
+                best = INFIX;
+            }
+        }
+        return best;
+    }
+
+    private void addLocked(Item item) {
+        Doc doc = new Doc(item);
+        int docId = docs.size();
+        docs.add(doc);
+        docIdsByItem.put(item.getId(), docId);
+        post(namePostings, doc.nameTerms, docId);
+        post(descriptionPostings, doc.descriptionTerms, docId);
+    }
+
+    private void post(Map<String, Postings> field, String[] terms, int docId) {
+        for (String term : terms) {
+            Postings postings = field.get(term);
+            if (postings == null) {
+                postings = new Postings();
+                field.put(term, postings);
+                for (String gram : grams(term)) {
+                    termsByGram.computeIfAbsent(gram, key -> new HashSet<>()).add(term);
+                }
+            }
+            // a term repeated within the field is only posted once
+            if (postings.size == 0 || postings.docIds[postings.size - 1] != docId) {
+                postings.add(docId);
+            }
+        }
+    }
+
+    private void removeLocked(Long itemId) {
+        Integer docId = docIdsByItem.remove(itemId);
+        if (docId != null) {
+            // postings still point at the slot; searches skip it until the next compaction
+            docs.set(docId, null);
+            tombstones++;
+        }
+    }
+
+    private void compactIfNeeded() {
+        if (tombstones > 1024 && tombstones > docIdsByItem.size()) {
+            List<Item> live = new ArrayList<>(docIdsByItem.size());
+            for (Doc doc : docs) {
+                if (doc != null) {
+                    live.add(doc.item);
+                }
+            }
+            docs = new ArrayList<>(live.size());
+            docIdsByItem = new HashMap<>();
+            namePostings = new HashMap<>();
+            descriptionPostings = new HashMap<>();
+            termsByGram = new HashMap<>();
+            tombstones = 0;
+            for (Item item : live) {
+                addLocked(item);
+            }
+        }
+    }
+
+    static String[] tokenize(String text) {
+        if (text == null) {
+            return new String[0];
+        }
+        String[] parts = text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+");
+        List<String> tokens = new ArrayList<>(parts.length);
+        for (String part : parts) {
+            if (!part.isEmpty()) {
+                tokens.add(part);
+            }
+        }
+        return tokens.toArray(new String[0]);
+    }
+
+    /**
+     * The keys a term is filed under: its one- and two-letter prefixes, marked with {@code ^},
+     * and every trigram.
+     */
+    private static Set<String> grams(String term) {
+        Set<String> grams = new HashSet<>();
+        grams.add("^" + term.substring(0, 1));
+        if (term.length() >= 2) {
+            grams.add("^" + term.substring(0, 2));
+        }
+        for (int i = 0; i + 3 <= term.length(); i++) {
+            grams.add(term.substring(i, i + 3));
+        }
+        return grams;
+    }
+
+    private static final class Doc {
+        private final Item item;
+        private final String[] nameTerms;
+        private final String[] descriptionTerms;
+
+        private Doc(Item item) {
+            this.item = item;
+            this.nameTerms = tokenize(item.getName());
+            this.descriptionTerms = tokenize(item.getDescription());
+        }
+    }
+
+    /**
+     * Growable list of document ids, ascending because ids are only ever appended.
+     */
+    private static final class Postings {
+        private int[] docIds = new int[4];
+        private int size;
+
+        private void add(int docId) {
+            if (size == docIds.length) {
+                docIds = Arrays.copyOf(docIds, size * 2);
+            }
+            docIds[size++] = docId;
+        }
+    }
+
+    private static final class Tier {
+        private final int weight;
+        private final List<Postings> postings = new ArrayList<>();
+
+        private Tier(int weight) {
+            this.weight = weight;
+        }
+
+        private void add(Postings list) {
+            if (list != null) {
+                postings.add(list);
+            }
+        }
+
+        private long size() {
+            long size = 0;
+            for (Postings list : postings) {
+                size += list.size;
+            }
+            return size;
+        }
+    }
+
+    private static final class Cursor {
+        private final Postings postings;
+        private int position;
+
+        private Cursor(Postings postings) {
+            this.postings = postings;
+        }
+
+        private int docId() {
+            return postings.docIds[position];
+        }
+
+        private boolean advance() {
+            return ++position < postings.size;
+        }
+    }
+
+    private static final class Match {
+        private final int docId;
+        private final Doc doc;
+        private final int score;
+
+        private Match(int docId, Doc doc, int score) {
+            this.docId = docId;
+            this.doc = doc;
+            this.score = score;
+        }
+    }
+}
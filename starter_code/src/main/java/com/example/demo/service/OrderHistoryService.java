@@ -0,0 +1,115 @@
+package com.example.demo.service;
+
+import com.example.demo.model.persistence.repositories.OrderStore;
+import com.example.demo.model.responses.OrderHistoryPage;
+import com.example.demo.model.responses.OrderLineResponse;
+import com.example.demo.model.responses.OrderResponse;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Reads a user's order history as {@link OrderResponse}s: in full, one keyset page at a time, or
+ * as newline-delimited JSON written straight from a database cursor. Orders and their lines are
+ * selected column by column, without loading entities, and the lines of a whole page or chunk
+ * come from one query. Each call reads in one read-only transaction, so orders and their lines
+ * come from the same connection, and from the replica when one is configured.
+ */
+@Service
+public class OrderHistoryService {
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+    private static final int STREAM_CHUNK_SIZE = 100;
+
+    private final OrderStore orderStore;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public OrderHistoryService(OrderStore orderStore, ObjectMapper objectMapper,
+                               PlatformTransactionManager transactionManager) {
+        this.orderStore = orderStore;
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public List<OrderResponse> all(Long userId) {
+        return readOnlyTransaction.execute(status ->
+                withLines(userId, orderStore.findResponsesByUserId(userId, 0L, Pageable.unpaged())));
+    }
+
+    /**
+     * Returns up to {@code size} orders placed after the order with id {@code after} (exclusive).
+     */
+    public OrderHistoryPage page(Long userId, Long after, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        return readOnlyTransaction.execute(status -> {
+            // fetch one extra row to learn whether another page follows
+            List<OrderResponse> orders = orderStore.findResponsesByUserId(
+                    userId, after == null ? 0L : after, PageRequest.of(0, pageSize + 1));
+            if (orders.size() <= pageSize) {
+                return new OrderHistoryPage(withLines(userId, orders), null);
+            }
+            List<OrderResponse> page = withLines(userId, new ArrayList<>(orders.subList(0, pageSize)));
+            return new OrderHistoryPage(page, page.get(pageSize - 1).getId());
+        });
+    }
+
+    /**
+     * Writes every order of the user to {@code out}, one JSON document per line. Orders are read
+     * from a cursor and written in chunks, so memory use does not grow with the history.
+     */
+    public void stream(Long userId, OutputStream out) {
+        readOnlyTransaction.execute(status -> {
+            try (Stream<OrderResponse> orders = orderStore.streamResponsesByUserId(userId);
+                 JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.setRootValueSeparator(null);
+                List<OrderResponse> chunk = new ArrayList<>(STREAM_CHUNK_SIZE);
+                Iterator<OrderResponse> iterator = orders.iterator();
+                while (iterator.hasNext()) {
+                    chunk.add(iterator.next());
+                    if (chunk.size() == STREAM_CHUNK_SIZE || !iterator.hasNext()) {
+                        for (OrderResponse order : withLines(userId, chunk)) {
+                            objectMapper.writeValue(generator, order);
+                            generator.writeRaw('\n');
+                        }
+                        chunk.clear();
+                    }
+                }
+                generator.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return null;
+        });
+    }
+
+    private List<OrderResponse> withLines(Long userId, List<OrderResponse> orders) {
+        if (orders.isEmpty()) {
+            return orders;
+        }
+        Map<Long, OrderResponse> byId = new HashMap<>();
+        for (OrderResponse order : orders) {
+            byId.put(order.getId(), order);
+        }
+        for (OrderLineResponse line : orderStore.findResponseLines(userId, byId.keySet())) {
+            byId.get(line.getOrderId()).addLine(line);
+        }
+        return orders;
+    }
+}
@@ -0,0 +1,318 @@
+package com.example.demo.service;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.CartLine;
+import com.example.demo.model.persistence.OrderLine;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.persistence.repositories.OrderStore;
+import com.example.demo.model.responses.OrderReceipt;
+import com.example.demo.outbox.OrderOutbox;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Accepts order submissions without writing them on the request thread. A submission is copied
+ * out of the cart, given a reference and put on a bounded queue; a single writer thread drains
+ * the queue and stores everything it took in one transaction, together with the users' order
+ * summaries and the orders' outbox events, so a burst of checkouts costs one commit per batch
+ * instead of one per order. Callers poll {@link #status(String)} with the reference to learn the
+ * stored order's id. A submission's receipt is kept until the submission has been written, and
+ * for {@code order.ingestion.status-retention} after that.
+ *
+ * <p>On shutdown the service stops accepting submissions and the writer empties the queue
+ * before the context goes on to close the data source.
+ */
+@Service
+public class OrderIngestionService implements SmartLifecycle {
+    private static final Logger log = LoggerFactory.getLogger(OrderIngestionService.class);
+
+    private final OrderStore orderStore;
+    private final OrderSummaryService orderSummaryService;
+    private final OrderOutbox orderOutbox;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transaction;
+    private final BlockingQueue<PendingOrder> queue;
+    private final int batchSize;
+    private final long pollMillis;
+    // receipts of queued submissions and of the batch being written, at most the queue's capacity
+    // plus one batch; they move to the finished receipts once written
+    private final Map<String, OrderReceipt> queuedReceipts = new ConcurrentHashMap<>();
+    private final Cache<String, OrderReceipt> receipts;
+
+    // held shared while enqueueing and exclusively while closing the queue, so nothing is
+    // offered after the writer has been told to finish
+    private final ReadWriteLock intake = new ReentrantReadWriteLock();
+    private volatile boolean accepting;
+    private volatile boolean running;
+    private volatile Runnable onStopped;
+    private Thread writer;
+
+    private final LongAdder persisted = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    public OrderIngestionService(OrderStore orderStore, OrderSummaryService orderSummaryService,
+                                 OrderOutbox orderOutbox, EntityManager entityManager,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${order.ingestion.queue-capacity:10000}") int queueCapacity,
+                                 @Value("${order.ingestion.batch-size:100}") int batchSize,
+                                 @Value("${order.ingestion.poll-interval:PT0.05S}") Duration pollInterval,
+                                 @Value("${order.ingestion.status-retention:PT1H}") Duration statusRetention) {
+        this.orderStore = orderStore;
+        this.orderSummaryService = orderSummaryService;
+        this.orderOutbox = orderOutbox;
+        this.entityManager = entityManager;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.pollMillis = pollInterval.toMillis();
+        this.receipts = Caffeine.newBuilder()
+                .maximumSize(queueCapacity * 10L)
+                .expireAfterWrite(statusRetention)
+                .build();
+    }
+
+    /**
+     * Queues an order for the cart's current contents.
+     *
+     * @return the receipt to hand back to the client, or empty if the queue is full or the
+     * service is shutting down
+     */
+    public Optional<OrderReceipt> enqueue(Cart cart) {
+        PendingOrder order = PendingOrder.of(cart);
+        OrderReceipt receipt = new OrderReceipt(order.reference, OrderReceipt.Status.QUEUED, null);
+        intake.readLock().lock();
+        try {
+            if (!accepting) {
+                return Optional.empty();
+            }
+            queuedReceipts.put(order.reference, receipt);
+            if (!queue.offer(order)) {
+                queuedReceipts.remove(order.reference);
+                return Optional.empty();
+            }
+        } finally {
+            intake.readLock().unlock();
+        }
+        return Optional.of(receipt);
+    }
+
+    /**
+     * Looks up a submission by reference. Once its receipt has expired, orders that were stored
+     * are still found through the database.
+     */
+    public Optional<OrderReceipt> status(String reference) {
+        // queued first: a written receipt is added to the finished ones before it leaves the queued ones
+        OrderReceipt receipt = queuedReceipts.get(reference);
+        if (receipt == null) {
+            receipt = receipts.getIfPresent(reference);
+        }
+        if (receipt != null) {
+            return Optional.of(receipt);
+        }
+        UserOrder order = orderStore.findByReference(reference);
+        return order == null
+                ? Optional.empty()
+                : Optional.of(new OrderReceipt(reference, OrderReceipt.Status.PERSISTED, order.getId()));
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getPersistedCount() {
+        return persisted.sum();
+    }
+
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    private void drain() {
+        List<PendingOrder> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingOrder first = queue.poll(pollMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                // nothing is expected to interrupt the writer; treat it as a shutdown and finish the queue
+                running = false;
+            } finally {
+                batch.clear();
+            }
+        }
+        Runnable callback = onStopped;
+        if (callback != null) {
+            callback.run();
+        }
+    }
+
+    private void write(List<PendingOrder> batch) {
+        try {
+            List<UserOrder> orders = transaction.execute(status -> persist(batch));
+            for (int i = 0; i < batch.size(); i++) {
+                stored(batch.get(i), orders.get(i));
+            }
+        } catch (RuntimeException batchFailure) {
+            if (batch.size() == 1) {
+                failed(batch.get(0), batchFailure);
+                return;
+            }
+            // one bad order should not take the rest of the batch down with it
+            for (PendingOrder order : batch) {
+                try {
+                    stored(order, transaction.execute(status -> persist(Collections.singletonList(order))).get(0));
+                } catch (RuntimeException e) {
+                    failed(order, e);
+                }
+            }
+        }
+    }
+
+    private List<UserOrder> persist(List<PendingOrder> batch) {
+        List<UserOrder> orders = new ArrayList<>(batch.size());
+        for (PendingOrder pending : batch) {
+            UserOrder order = new UserOrder();
+            order.setReference(pending.reference);
+            order.setUser(entityManager.getReference(User.class, pending.userId));
+            order.setLines(pending.lines);
+            order.setTotalCents(pending.totalCents);
+            order.setCreatedAt(pending.createdAt);
+            orderStore.save(order);
+            orderSummaryService.record(pending.userId, order);
+            orderOutbox.append(order);
+            orders.add(order);
+        }
+        return orders;
+    }
+
+    private void stored(PendingOrder pending, UserOrder order) {
+        persisted.increment();
+        finish(new OrderReceipt(pending.reference, OrderReceipt.Status.PERSISTED, order.getId()));
+    }
+
+    private void failed(PendingOrder pending, RuntimeException cause) {
+        failed.increment();
+        log.error("Failed to store queued order " + pending.reference, cause);
+        finish(new OrderReceipt(pending.reference, OrderReceipt.Status.FAILED, null));
+    }
+
+    private void finish(OrderReceipt receipt) {
+        receipts.put(receipt.getReference(), receipt);
+        queuedReceipts.remove(receipt.getReference());
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        accepting = true;
+        onStopped = null;
+        writer = new Thread(this::drain, "order-ingestion-writer");
+        writer.start();
+    }
+
+    @Override
+    public void stop(Runnable callback) {
+        intake.writeLock().lock();
+        try {
+            accepting = false;
+        } finally {
+            intake.writeLock().unlock();
+        }
+        synchronized (this) {
+            if (!running) {
+                callback.run();
+                return;
+            }
+            onStopped = callback;
+            running = false;
+        }
+        log.info("Draining " + queue.size() + " queued orders before shutdown");
+    }
+
+    @Override
+    public void stop() {
+        Thread current;
+        synchronized (this) {
+            current = writer;
+        }
+        stop(() -> { });
+        if (current != null) {
+            try {
+                current.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // stop before anything at the default phase, while the data source is still open
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Snapshot of a cart taken on the request thread, so the writer never touches the request's
+     * persistence context.
+     */
+    private static final class PendingOrder {
+        private final String reference;
+        private final Long userId;
+        private final List<OrderLine> lines;
+        private final long totalCents;
+        private final Instant createdAt = Instant.now();
+
+        private PendingOrder(String reference, Long userId, List<OrderLine> lines, long totalCents) {
+            this.reference = reference;
+            this.userId = userId;
+            this.lines = lines;
+            this.totalCents = totalCents;
+        }
+
+        static PendingOrder of(Cart cart) {
+            List<OrderLine> lines = new ArrayList<>(cart.getLines().size());
+            for (CartLine line : cart.getLines()) {
+                lines.add(OrderLine.of(line));
+            }
+            return new PendingOrder(UUID.randomUUID().toString(), cart.getUser().getId(), lines, cart.getTotalCents());
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.demo.service;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Actuator operation that rebuilds the order summaries from the order history:
+ * {@code POST /actuator/ordersummary}. Like the other actuator endpoints it is only reachable
+ * from the local host.
+ */
+@Component
+@Endpoint(id = "ordersummary")
+public class OrderSummaryEndpoint {
+    private final OrderSummaryService orderSummaryService;
+
+    public OrderSummaryEndpoint(OrderSummaryService orderSummaryService) {
+        this.orderSummaryService = orderSummaryService;
+    }
+
+    @WriteOperation
+    public Map<String, Integer> rebuild() {
+        return Collections.singletonMap("users", orderSummaryService.rebuild());
+    }
+}
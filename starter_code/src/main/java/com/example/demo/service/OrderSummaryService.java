@@ -0,0 +1,138 @@
+package com.example.demo.service;
+
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.persistence.UserOrderSummary;
+import com.example.demo.model.persistence.repositories.OrderRepository;
+import com.example.demo.model.persistence.repositories.OrderStore;
+import com.example.demo.model.persistence.repositories.UserOrderSummaryRepository;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.outbox.OrderOutbox;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Maintains one {@link UserOrderSummary} row per user, so that the order count, lifetime spend
+ * and latest order are a primary-key read however long the history is.
+ *
+ * <p>Every stored order is added to its user's row in the transaction that stores it, by a single
+ * increment statement so concurrent orders for the same user do not lose updates. {@link #rebuild()}
+ * recomputes the rows from the orders, for data written before the summary existed or repaired
+ * by hand.
+ */
+@Service
+public class OrderSummaryService {
+    private static final Logger log = LoggerFactory.getLogger(OrderSummaryService.class);
+    private static final int REBUILD_PAGE_SIZE = 500;
+
+    private final OrderStore orderStore;
+    private final UserOrderSummaryRepository summaryRepository;
+    private final UserRepository userRepository;
+    private final OrderOutbox orderOutbox;
+    private final TransactionTemplate transaction;
+    private final TransactionTemplate newTransaction;
+
+    public OrderSummaryService(OrderStore orderStore, UserOrderSummaryRepository summaryRepository,
+                               UserRepository userRepository, OrderOutbox orderOutbox,
+                               PlatformTransactionManager transactionManager) {
+        this.orderStore = orderStore;
+        this.summaryRepository = summaryRepository;
+        this.userRepository = userRepository;
+        this.orderOutbox = orderOutbox;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Stores the order, adds it to its user's summary and writes its event to the outbox, all in
+     * one transaction.
+     */
+    public UserOrder place(UserOrder order) {
+        return transaction.execute(status -> {
+            orderStore.save(order);
+            record(order.getUser().getId(), order);
+            orderOutbox.append(order);
+            return order;
+        });
+    }
+
+    /**
+     * Adds an order that is being stored in the current transaction to the user's summary.
+     */
+    public void record(Long userId, UserOrder order) {
+        if (summaryRepository.addOrder(userId, order.getTotalCents(), order.getId(), order.getCreatedAt()) == 0) {
+            create(userId);
+            summaryRepository.addOrder(userId, order.getTotalCents(), order.getId(), order.getCreatedAt());
+        }
+    }
+
+    /**
+     * Returns the user's summary; a user without a row has not ordered anything yet.
+     */
+    public UserOrderSummary find(Long userId) {
+        return summaryRepository.findById(userId).orElseGet(() -> new UserOrderSummary(userId));
+    }
+
+    /**
+     * Recomputes every user's summary from the stored orders, one user per transaction.
+     *
+     * @return the number of users visited
+     */
+    public int rebuild() {
+        int users = 0;
+        long after = 0L;
+        List<Long> ids;
+        while (!(ids = userRepository.findIdsAfter(after, PageRequest.of(0, REBUILD_PAGE_SIZE))).isEmpty()) {
+            for (Long userId : ids) {
+                rebuild(userId);
+            }
+            users += ids.size();
+            after = ids.get(ids.size() - 1);
+        }
+        log.info("Rebuilt order summaries for " + users + " users");
+        return users;
+    }
+
+    public void rebuild(Long userId) {
+        transaction.execute(status -> {
+            // lock before reading the orders: an order committed after that waits on the lock
+            // and is added on top of the recomputed totals instead of being counted twice
+            Optional<UserOrderSummary> existing = summaryRepository.findForUpdate(userId);
+            if (!existing.isPresent() && !orderStore.existsByUserId(userId)) {
+                return null;
+            }
+            UserOrderSummary summary = existing.orElseGet(() -> {
+                create(userId);
+                return summaryRepository.findForUpdate(userId).get();
+            });
+            OrderRepository.Totals totals = orderStore.totalsForUser(userId);
+            Long lastOrderId = totals.getLastOrderId();
+            summary.reset(totals.getOrderCount(),
+                    totals.getTotalSpentCents() == null ? 0L : totals.getTotalSpentCents(),
+                    lastOrderId,
+                    lastOrderId == null ? null : orderStore.findCreatedAt(userId, lastOrderId));
+            return null;
+        });
+    }
+
+    /**
+     * Inserts an empty row for the user on its own, so that a concurrent first order for the same
+     * user only loses the race to create it, not its whole transaction.
+     */
+    private void create(Long userId) {
+        try {
+            newTransaction.execute(status -> summaryRepository.saveAndFlush(new UserOrderSummary(userId)));
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Order summary for user " + userId + " created concurrently");
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.demo.sharding;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+/**
+ * Moves orders that are not on their user's shard there, after shards have been added to
+ * {@code order.sharding.urls}. Each order is copied to its new shard and then deleted from the
+ * old one, so an interrupted run leaves at most one order on both, which the next run finishes
+ * moving. Until a user's orders have been moved, reads see only the part already on the new shard.
+ */
+public class OrderShardRebalancer {
+    private static final Logger log = LoggerFactory.getLogger(OrderShardRebalancer.class);
+    private static final int PAGE_SIZE = 500;
+
+    private final ShardedOrderStore orderStore;
+    private final OrderShardRouter router;
+
+    public OrderShardRebalancer(ShardedOrderStore orderStore, OrderShardRouter router) {
+        this.orderStore = orderStore;
+        this.router = router;
+    }
+
+    /**
+     * @return the number of orders moved
+     */
+    public int rebalance() {
+        int moved = 0;
+        for (int shard = 0; shard < router.size(); shard++) {
+            long after = 0L;
+            List<ShardedOrderStore.Placement> page;
+            while (!(page = orderStore.placements(shard, after, PAGE_SIZE)).isEmpty()) {
+                for (ShardedOrderStore.Placement placement : page) {
+                    int home = router.shardOf(placement.userId);
+                    if (home != shard) {
+                        orderStore.move(placement.orderId, shard, home);
+                        moved++;
+                    }
+                }
+                after = page.get(page.size() - 1).orderId;
+            }
+        }
+        log.info("Moved " + moved + " orders to their users' shards");
+        return moved;
+    }
+
+    /**
+     * Number of orders stored on each shard.
+     */
+    public long[] counts() {
+        long[] counts = new long[router.size()];
+        for (int shard = 0; shard < counts.length; shard++) {
+            counts[shard] = orderStore.count(shard);
+        }
+        return counts;
+    }
+}
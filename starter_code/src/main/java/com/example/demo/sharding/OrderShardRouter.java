@@ -0,0 +1,54 @@
+package com.example.demo.sharding;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Maps a user to the shard that holds all of the user's orders: the user id modulo the number of
+ * shards. Adding a shard changes the home of most users, whose orders
+ * {@link OrderShardRebalancer} then moves.
+ */
+public class OrderShardRouter implements AutoCloseable {
+    private final List<DataSource> shards;
+
+    public OrderShardRouter(List<DataSource> shards) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one order shard is required");
+        }
+        this.shards = Collections.unmodifiableList(new ArrayList<>(shards));
+    }
+
+    public int shardOf(Long userId) {
+        return Math.floorMod(userId, shards.size());
+    }
+
+    public DataSource shardFor(Long userId) {
+        return shards.get(shardOf(userId));
+    }
+
+    public DataSource shard(int index) {
+        return shards.get(index);
+    }
+
+    public List<DataSource> getShards() {
+        return shards;
+    }
+
+    public int size() {
+        return shards.size();
+    }
+
+    /**
+     * Closes the shards' pools.
+     */
+    @Override
+    public void close() throws Exception {
+        for (DataSource shard : shards) {
+            if (shard instanceof AutoCloseable) {
+                ((AutoCloseable) shard).close();
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.demo.sharding;
+
+import com.example.demo.model.persistence.repositories.JpaOrderEventStore;
+import com.example.demo.service.OrderSummaryService;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Opt-in order sharding ({@code order.sharding.urls}, a comma-separated list of JDBC URLs). Orders,
+ * their lines and their outbox events are then stored by {@link ShardedOrderStore} and
+ * {@link ShardedOrderEventStore} on the shard of their user instead of in the application's
+ * database, which keeps users, carts, items and order summaries. Each
+ * shard gets a pool configured by {@code order.sharding.hikari}, with the credentials of
+ * {@code order.sharding.username} and {@code order.sharding.password} or else those of
+ * {@code spring.datasource}.
+ *
+ * <p>Shards may be appended to the list, followed by {@code POST /actuator/ordershards} to move
+ * existing orders to their new shard; removing a shard is not supported. Listing the
+ * application's own database among the shards moves the orders stored before sharding was
+ * turned on.
+ *
+ * <p>An order and its user's summary are committed in two databases one after the other;
+ * {@link OrderSummaryRepairer} catches up the summaries of orders whose second commit failed, every
+ * {@code order.sharding.repair-interval}.
+ *
+ * <p>As with the read replica, the shard pools are not data source beans, so that Spring Boot
+ * keeps configuring the application's own.
+ */
+@Configuration
+@ConditionalOnProperty(name = "order.sharding.urls")
+public class OrderShardingConfiguration {
+
+    @Bean(destroyMethod = "close")
+    public OrderShardRouter orderShardRouter(Environment environment, DataSourceProperties properties,
+                                             @Value("${order.sharding.urls}") String[] urls,
+                                             @Value("${order.sharding.username:${spring.datasource.username:}}") String username,
+                                             @Value("${order.sharding.password:${spring.datasource.password:}}") String password) {
+        List<DataSource> shards = new ArrayList<>(urls.length);
+        for (int i = 0; i < urls.length; i++) {
+            HikariConfig config = new HikariConfig();
+            Binder.get(environment).bind("order.sharding.hikari", Bindable.ofInstance(config));
+            config.setPoolName("order-shard-" + i);
+            config.setDriverClassName(properties.determineDriverClassName());
+            config.setJdbcUrl(urls[i].trim());
+            config.setUsername(username);
+            config.setPassword(password);
+            shards.add(new HikariDataSource(config));
+        }
+        return new OrderShardRouter(shards);
+    }
+
+    @Bean
+    @Primary
+    public ShardedOrderStore shardedOrderStore(OrderShardRouter router, DataSource dataSource,
+                                               EntityManagerFactory entityManagerFactory) {
+        Dialect dialect = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+        ShardedOrderStore orderStore = new ShardedOrderStore(router, dataSource,
+                dialect.getSequenceNextValString("user_order_seq"), entityManagerFactory);
+        orderStore.createSchema();
+        return orderStore;
+    }
+
+    @Bean
+    @Primary
+    public ShardedOrderEventStore shardedOrderEventStore(ShardedOrderStore orderStore, OrderShardRouter router,
+                                                         JpaOrderEventStore unsharded) {
+        ShardedOrderEventStore eventStore = new ShardedOrderEventStore(orderStore, router, unsharded);
+        eventStore.createSchema();
+        return eventStore;
+    }
+
+    @Bean
+    public OrderShardRebalancer orderShardRebalancer(ShardedOrderStore orderStore, OrderShardRouter router) {
+        return new OrderShardRebalancer(orderStore, router);
+    }
+
+    @Bean
+    public OrderSummaryRepairer orderSummaryRepairer(ShardedOrderStore orderStore, OrderShardRouter router,
+                                                     OrderSummaryService orderSummaryService,
+                                                     @Value("${order.sharding.repair-interval:PT1M}") Duration interval) {
+        return new OrderSummaryRepairer(orderStore, router, orderSummaryService, interval);
+    }
+
+    @Bean
+    public OrderShardsEndpoint orderShardsEndpoint(OrderShardRebalancer rebalancer) {
+        return new OrderShardsEndpoint(rebalancer);
+    }
+}
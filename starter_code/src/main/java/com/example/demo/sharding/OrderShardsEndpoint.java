@@ -0,0 +1,38 @@
+package com.example.demo.sharding;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Actuator operations on the order shards: {@code GET /actuator/ordershards} reports how many
+ * orders each shard holds, {@code POST /actuator/ordershards} runs the {@link OrderShardRebalancer}.
+ * Like the other actuator endpoints it is only reachable from the local host.
+ */
+@Endpoint(id = "ordershards")
+public class OrderShardsEndpoint {
+    private final OrderShardRebalancer rebalancer;
+
+    public OrderShardsEndpoint(OrderShardRebalancer rebalancer) {
+        this.rebalancer = rebalancer;
+    }
+
+    @ReadOperation
+    public Map<String, Long> orders() {
+        Map<String, Long> orders = new LinkedHashMap<>();
+        long[] counts = rebalancer.counts();
+        for (int shard = 0; shard < counts.length; shard++) {
+            orders.put("shard-" + shard, counts[shard]);
+        }
+        return orders;
+    }
+
+    @WriteOperation
+    public Map<String, Integer> rebalance() {
+        return Collections.singletonMap("moved", rebalancer.rebalance());
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.demo.sharding;
+
+import com.example.demo.service.OrderSummaryService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Repairs the summaries of orders that a shard committed without the application database. Every
+ * {@code order.sharding.repair-interval} a background thread looks on each shard for summary
+ * markers at least that old, which the order's transaction would have deleted had it committed
+ * everywhere, rebuilds their users' summaries from the orders and then deletes the markers.
+ *
+ * <p>A rebuild that fails leaves its markers for the next run. One that runs while an order's
+ * transaction is still committing waits on the summary row the transaction has locked, so it is
+ * safe to repeat at any time.
+ */
+public class OrderSummaryRepairer implements SmartLifecycle {
+    private static final Logger log = LoggerFactory.getLogger(OrderSummaryRepairer.class);
+    private static final int PAGE_SIZE = 500;
+
+    private final ShardedOrderStore orderStore;
+    private final OrderShardRouter router;
+    private final OrderSummaryService orderSummaryService;
+    private final Duration interval;
+
+    private ScheduledExecutorService executor;
+
+    public OrderSummaryRepairer(ShardedOrderStore orderStore, OrderShardRouter router,
+                                OrderSummaryService orderSummaryService, Duration interval) {
+        this.orderStore = orderStore;
+        this.router = router;
+        this.orderSummaryService = orderSummaryService;
+        this.interval = interval;
+    }
+
+    /**
+     * Rebuilds the summaries of the users with markers written before {@code writtenBefore}.
+     *
+     * @return the number of orders whose markers were cleared
+     */
+    public int repair(Instant writtenBefore) {
+        int repaired = 0;
+        for (int shard = 0; shard < router.size(); shard++) {
+            List<ShardedOrderStore.Placement> page;
+            do {
+                page = orderStore.summaryPending(shard, writtenBefore, PAGE_SIZE);
+                if (page.isEmpty()) {
+                    break;
+                }
+                Set<Long> users = new LinkedHashSet<>();
+                List<Long> orderIds = new ArrayList<>(page.size());
+                for (ShardedOrderStore.Placement placement : page) {
+                    users.add(placement.userId);
+                    orderIds.add(placement.orderId);
+                }
+                for (Long userId : users) {
+                    orderSummaryService.rebuild(userId);
+                }
+                orderStore.clearSummaryPending(shard, orderIds);
+                repaired += page.size();
+            } while (page.size() == PAGE_SIZE);
+        }
+        if (repaired > 0) {
+            log.warn("Repaired the order summaries of " + repaired + " orders committed only on their shard");
+        }
+        return repaired;
+    }
+
+    private void poll() {
+        try {
+            repair(Instant.now().minus(interval));
+        } catch (RuntimeException e) {
+            // keep the schedule alive; the markers are still there
+            log.error("Order summary repair failed", e);
+        }
+    }
+
+    @Override
+    public synchronized void start() {
+        if (executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "order-summary-repairer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = interval.toMillis();
+        executor.scheduleWithFixedDelay(this::poll, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        ScheduledExecutorService current;
+        synchronized (this) {
+            current = executor;
+            executor = null;
+        }
+        if (current == null) {
+            return;
+        }
+        current.shutdown();
+        try {
+            current.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return executor != null;
+    }
+}
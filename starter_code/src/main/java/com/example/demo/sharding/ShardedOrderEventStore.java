@@ -0,0 +1,121 @@
+package com.example.demo.sharding;
+
+import com.example.demo.model.persistence.Money;
+import com.example.demo.model.persistence.OrderEvent;
+import com.example.demo.model.persistence.repositories.OrderEventStore;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Keeps the events of sharded orders in an outbox on the order's shard, written on the connection
+ * that stores the order, so the event commits or rolls back with it. Outbox {@code i} is shard
+ * {@code i}'s; the one after the shards is the application database's, which still holds the
+ * events written before sharding was turned on. The shards' table is not named {@code order_outbox}
+ * like that one, so that the application database can be listed among the shards.
+ */
+public class ShardedOrderEventStore implements OrderEventStore {
+    private static final String COLUMNS =
+            "id, event_id, type, order_id, reference, user_id, total, item_count, occurred_at";
+    private static final String[] SCHEMA = {
+            "create table if not exists sharded_order_outbox (id bigint auto_increment not null,"
+                    + " event_id varchar(36) not null unique, type varchar(255) not null, order_id bigint not null,"
+                    + " reference varchar(36) not null, user_id bigint not null, total decimal(19, 2) not null,"
+                    + " item_count integer not null, occurred_at timestamp not null, primary key (id))"
+    };
+
+    private static final RowMapper<OrderEvent> ORDER_EVENT = (row, rowNum) -> new OrderEvent(
+            row.getLong("id"), row.getString("event_id"), row.getString("type"), row.getLong("order_id"),
+            row.getString("reference"), row.getLong("user_id"), Money.toCents(row.getBigDecimal("total")),
+            row.getInt("item_count"), row.getTimestamp("occurred_at").toInstant());
+
+    private final ShardedOrderStore orderStore;
+    private final OrderShardRouter router;
+    private final OrderEventStore unsharded;
+
+    /**
+     * @param unsharded the application database's outbox, delivered after the shards'
+     */
+    public ShardedOrderEventStore(ShardedOrderStore orderStore, OrderShardRouter router, OrderEventStore unsharded) {
+        this.orderStore = orderStore;
+        this.router = router;
+        this.unsharded = unsharded;
+    }
+
+    /**
+     * Creates the outbox on every shard that does not have one yet.
+     */
+    public void createSchema() {
+        for (int shard = 0; shard < router.size(); shard++) {
+            for (String statement : SCHEMA) {
+                jdbc(shard).execute(statement);
+            }
+        }
+    }
+
+    @Override
+    public void append(OrderEvent event) {
+        jdbc(router.shardOf(event.getUserId())).update(
+                "insert into sharded_order_outbox (event_id, type, order_id, reference, user_id, total, item_count,"
+                        + " occurred_at) values (?, ?, ?, ?, ?, ?, ?, ?)",
+                event.getEventId(), event.getType(), event.getOrderId(), event.getReference(), event.getUserId(),
+                event.getTotal(), event.getItemCount(), Timestamp.from(event.getOccurredAt()));
+    }
+
+    @Override
+    public int outboxCount() {
+        return router.size() + 1;
+    }
+
+    @Override
+    public List<OrderEvent> findOldest(int outbox, int limit) {
+        if (outbox == router.size()) {
+            return unsharded.findOldest(0, limit);
+        }
+        return jdbc(outbox).query(
+                "select " + COLUMNS + " from sharded_order_outbox order by id fetch first ? rows only",
+                ORDER_EVENT, limit);
+    }
+
+    @Override
+    public void delete(int outbox, Collection<Long> ids) {
+        if (outbox == router.size()) {
+            unsharded.delete(0, ids);
+            return;
+        }
+        orderStore.jdbc(outbox).update(
+                "delete from sharded_order_outbox where id in (:ids)", Collections.singletonMap("ids", ids));
+    }
+
+    @Override
+    public long count() {
+        long count = unsharded.count();
+        for (int shard = 0; shard < router.size(); shard++) {
+            count += jdbc(shard).queryForObject("select count(*) from sharded_order_outbox", Long.class);
+        }
+        return count;
+    }
+
+    @Override
+    public Instant findOldestOccurredAt() {
+        Instant oldest = unsharded.findOldestOccurredAt();
+        for (int shard = 0; shard < router.size(); shard++) {
+            List<Timestamp> occurredAt = jdbc(shard).queryForList(
+                    "select occurred_at from sharded_order_outbox order by id fetch first 1 rows only",
+                    Timestamp.class);
+            if (!occurredAt.isEmpty() && (oldest == null || occurredAt.get(0).toInstant().isBefore(oldest))) {
+                oldest = occurredAt.get(0).toInstant();
+            }
+        }
+        return oldest;
+    }
+
+    private JdbcTemplate jdbc(int shard) {
+        return orderStore.jdbc(shard).getJdbcTemplate();
+    }
+}
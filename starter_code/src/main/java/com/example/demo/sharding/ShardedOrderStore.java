@@ -0,0 +1,579 @@
+package com.example.demo.sharding;
+
+import com.example.demo.model.persistence.Money;
+import com.example.demo.model.persistence.OrderLine;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.persistence.repositories.OrderRepository;
+import com.example.demo.model.persistence.repositories.OrderStore;
+import com.example.demo.model.responses.OrderLineResponse;
+import com.example.demo.model.responses.OrderResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.ConnectionHolder;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Keeps orders and their lines in several databases, each user's on the shard
+ * {@link OrderShardRouter} assigns to the user, so that every shard holds a fraction of all
+ * orders and a user's history is read from one shard with one index lookup.
+ *
+ * <p>Ids are taken from the application database's {@code user_order_seq} in blocks, the way
+ * Hibernate allocates them for {@link UserOrder}, so they are unique across shards and increase
+ * like unsharded ones.
+ *
+ * <p>Inside a transaction every shard that is used gets one connection for the rest of it. When
+ * the transaction commits, the application database's pending writes are flushed first, then the
+ * shards commit and then the application database. An order saved in a transaction is stored with
+ * a marker in {@code order_summary_pending} that is deleted once the whole transaction has
+ * committed; should the application database's commit fail after the shard's, the marker stays
+ * and {@link OrderSummaryRepairer} rebuilds the user's summary from the orders. Outside a
+ * transaction each save is committed on its own, without a marker.
+ */
+public class ShardedOrderStore implements OrderStore {
+    private static final Logger log = LoggerFactory.getLogger(ShardedOrderStore.class);
+    // the allocation size of the user_order_seq generator on UserOrder
+    static final int ID_BLOCK_SIZE = 50;
+    private static final int STREAM_FETCH_SIZE = 100;
+    private static final String ORDER_COLUMNS = "id, user_id, reference, created_at, total";
+    private static final String RESPONSE_COLUMNS = "id, reference, created_at, total";
+    private static final String[] SCHEMA = {
+            "create table if not exists user_order (id bigint not null, user_id bigint not null,"
+                    + " reference varchar(36) unique, created_at timestamp, total decimal(19, 2), primary key (id))",
+            "create index if not exists user_order_user_id_idx on user_order (user_id, id)",
+            "create table if not exists user_order_line (order_id bigint not null, line_index integer not null,"
+                    + " item_id bigint not null, name varchar(255) not null, unit_price decimal(19, 2) not null,"
+                    + " quantity integer not null, primary key (order_id, line_index))",
+            "create table if not exists order_summary_pending (order_id bigint not null, user_id bigint not null,"
+                    + " created_at timestamp not null, primary key (order_id))"
+    };
+
+    private static final RowMapper<OrderResponse> ORDER_RESPONSE = (row, rowNum) -> new OrderResponse(
+            row.getLong("id"), row.getString("reference"), toInstant(row.getTimestamp("created_at")),
+            Money.toCents(row.getBigDecimal("total")));
+
+    private final OrderShardRouter router;
+    private final List<NamedParameterJdbcTemplate> jdbc = new ArrayList<>();
+    private final List<TransactionTemplate> shardTransactions = new ArrayList<>();
+    private final JdbcTemplate primary;
+    private final String nextIdBlockSql;
+    private final EntityManagerFactory entityManagerFactory;
+
+    // a lock rather than a monitor: drawing a new block queries the primary, which would pin a
+    // virtual thread's carrier for the length of the round trip
+    private final Lock idLock = new ReentrantLock();
+    private long nextId;
+    private long idBlockEnd;
+
+    /**
+     * @param nextIdBlockSql the statement that draws the next value of {@code user_order_seq}
+     * @param entityManagerFactory the application database's, flushed before the shards commit
+     */
+    public ShardedOrderStore(OrderShardRouter router, DataSource primary, String nextIdBlockSql,
+                             EntityManagerFactory entityManagerFactory) {
+        this.router = router;
+        for (DataSource shard : router.getShards()) {
+            jdbc.add(new NamedParameterJdbcTemplate(shard));
+            shardTransactions.add(new TransactionTemplate(new DataSourceTransactionManager(shard)));
+        }
+        this.primary = new JdbcTemplate(primary);
+        this.nextIdBlockSql = nextIdBlockSql;
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    /**
+     * Creates the order tables on every shard that does not have them yet.
+     */
+    public void createSchema() {
+        for (NamedParameterJdbcTemplate shard : jdbc) {
+            for (String statement : SCHEMA) {
+                shard.getJdbcTemplate().execute(statement);
+            }
+        }
+    }
+
+    @Override
+    public UserOrder save(UserOrder order) {
+        int shard = router.shardOf(order.getUser().getId());
+        if (order.getId() == null) {
+            order.setId(nextId());
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            insert(shard, order);
+            markSummaryPending(shard, order);
+        } else {
+            shardTransactions.get(shard).execute(status -> {
+                insert(shard, order);
+                return null;
+            });
+        }
+        return order;
+    }
+
+    private long nextId() {
+        idLock.lock();
+        try {
+            if (nextId == idBlockEnd) {
+                nextId = primary.queryForObject(nextIdBlockSql, Long.class);
+                idBlockEnd = nextId + ID_BLOCK_SIZE;
+            }
+            return nextId++;
+        } finally {
+            idLock.unlock();
+        }
+    }
+
+    private void insert(int shard, UserOrder order) {
+        JdbcTemplate template = jdbc(shard).getJdbcTemplate();
+        template.update("insert into user_order (" + ORDER_COLUMNS + ") values (?, ?, ?, ?, ?)",
+                order.getId(), order.getUser().getId(), order.getReference(),
+                order.getCreatedAt() == null ? null : Timestamp.from(order.getCreatedAt()),
+                Money.toDecimal(order.getTotalCents()));
+        List<OrderLine> lines = order.getLines();
+        List<Object[]> rows = new ArrayList<>(lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            OrderLine line = lines.get(i);
+            rows.add(new Object[] {order.getId(), i, line.getItemId(), line.getName(),
+                    line.getUnitPrice(), line.getQuantity()});
+        }
+        template.batchUpdate("insert into user_order_line (order_id, line_index, item_id, name, unit_price, quantity)"
+                + " values (?, ?, ?, ?, ?, ?)", rows);
+    }
+
+    private void markSummaryPending(int shard, UserOrder order) {
+        Object holder = TransactionSynchronizationManager.getResource(router.shard(shard));
+        if (!(holder instanceof ShardConnectionHolder)) {
+            return;
+        }
+        jdbc(shard).getJdbcTemplate().update(
+                "insert into order_summary_pending (order_id, user_id, created_at) values (?, ?, ?)",
+                order.getId(), order.getUser().getId(), Timestamp.from(Instant.now()));
+        ((ShardConnectionHolder) holder).summaryPending.add(order.getId());
+    }
+
+    @Override
+    public List<UserOrder> findByUser(User user) {
+        int shard = router.shardOf(user.getId());
+        List<UserOrder> orders = jdbc(shard).getJdbcTemplate().query(
+                "select " + ORDER_COLUMNS + " from user_order where user_id = ? order by id",
+                (row, rowNum) -> toOrder(row, user), user.getId());
+        return withLines(shard, orders);
+    }
+
+    /**
+     * Asks every shard in turn. The order's user only carries its id.
+     */
+    @Override
+    public UserOrder findByReference(String reference) {
+        for (int shard = 0; shard < router.size(); shard++) {
+            UserOrder order = findOne(shard, "reference = ?", reference);
+            if (order != null) {
+                return order;
+            }
+        }
+        return null;
+    }
+
+    private UserOrder findOne(int shard, String condition, Object value) {
+        List<UserOrder> orders = jdbc(shard).getJdbcTemplate().query(
+                "select " + ORDER_COLUMNS + " from user_order where " + condition,
+                (row, rowNum) -> toOrder(row, null), value);
+        return orders.isEmpty() ? null : withLines(shard, orders).get(0);
+    }
+
+    @Override
+    public boolean existsByUserId(Long userId) {
+        return Boolean.TRUE.equals(jdbc(router.shardOf(userId)).getJdbcTemplate().query(
+                "select id from user_order where user_id = ?", (ResultSetExtractor<Boolean>) ResultSet::next, userId));
+    }
+
+    @Override
+    public OrderRepository.Totals totalsForUser(Long userId) {
+        return jdbc(router.shardOf(userId)).getJdbcTemplate().queryForObject(
+                "select count(*), sum(total), max(id) from user_order where user_id = ?",
+                (row, rowNum) -> {
+                    long count = row.getLong(1);
+                    return new Totals(count, count == 0 ? null : Money.toCents(row.getBigDecimal(2)),
+                            count == 0 ? null : row.getLong(3));
+                }, userId);
+    }
+
+    @Override
+    public Instant findCreatedAt(Long userId, Long orderId) {
+        List<Timestamp> createdAt = jdbc(router.shardOf(userId)).getJdbcTemplate().queryForList(
+                "select created_at from user_order where id = ?", Timestamp.class, orderId);
+        return createdAt.isEmpty() ? null : toInstant(createdAt.get(0));
+    }
+
+    @Override
+    public List<OrderResponse> findResponsesByUserId(Long userId, Long afterId, Pageable pageable) {
+        String sql = "select " + RESPONSE_COLUMNS + " from user_order where user_id = ? and id > ? order by id";
+        JdbcTemplate template = jdbc(router.shardOf(userId)).getJdbcTemplate();
+        if (pageable.isUnpaged()) {
+            return template.query(sql, ORDER_RESPONSE, userId, afterId);
+        }
+        return template.query(sql + " offset ? rows fetch next ? rows only", ORDER_RESPONSE,
+                userId, afterId, pageable.getOffset(), pageable.getPageSize());
+    }
+
+    /**
+     * Reads from a cursor on the user's shard, which the stream holds until it is closed.
+     */
+    @Override
+    public Stream<OrderResponse> streamResponsesByUserId(Long userId) {
+        int index = router.shardOf(userId);
+        DataSource shard = router.shard(index);
+        String sql = "select " + RESPONSE_COLUMNS + " from user_order where user_id = ? order by id";
+        joinTransaction(shard);
+        Connection connection = DataSourceUtils.getConnection(shard);
+        PreparedStatement statement = null;
+        ResultSet rows;
+        try {
+            statement = connection.prepareStatement(sql);
+            statement.setFetchSize(STREAM_FETCH_SIZE);
+            statement.setLong(1, userId);
+            rows = statement.executeQuery();
+        } catch (SQLException e) {
+            JdbcUtils.closeStatement(statement);
+            DataSourceUtils.releaseConnection(connection, shard);
+            throw translate(index, sql, e);
+        }
+        PreparedStatement cursor = statement;
+        Spliterator<OrderResponse> orders = new Spliterators.AbstractSpliterator<OrderResponse>(
+                Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            private int rowNum;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super OrderResponse> action) {
+                try {
+                    if (!rows.next()) {
+                        return false;
+                    }
+                    action.accept(ORDER_RESPONSE.mapRow(rows, rowNum++));
+                    return true;
+                } catch (SQLException e) {
+                    throw translate(index, sql, e);
+                }
+            }
+        };
+        return StreamSupport.stream(orders, false).onClose(() -> {
+            JdbcUtils.closeResultSet(rows);
+            JdbcUtils.closeStatement(cursor);
+            DataSourceUtils.releaseConnection(connection, shard);
+        });
+    }
+
+    @Override
+    public List<OrderLineResponse> findResponseLines(Long userId, Collection<Long> orderIds) {
+        return jdbc(router.shardOf(userId)).query(
+                "select order_id, item_id, name, unit_price, quantity from user_order_line"
+                        + " where order_id in (:orderIds) order by order_id, line_index",
+                Collections.singletonMap("orderIds", orderIds),
+                (row, rowNum) -> new OrderLineResponse(row.getLong("order_id"), row.getLong("item_id"),
+                        row.getString("name"), Money.toCents(row.getBigDecimal("unit_price")), row.getInt("quantity")));
+    }
+
+    /**
+     * Up to {@code limit} orders stored on the shard with an id greater than {@code afterId},
+     * by id, with the users they belong to.
+     */
+    List<Placement> placements(int shard, long afterId, int limit) {
+        return jdbc(shard).getJdbcTemplate().query(
+                "select id, user_id from user_order where id > ? order by id fetch first ? rows only",
+                (row, rowNum) -> new Placement(row.getLong(1), row.getLong(2)), afterId, limit);
+    }
+
+    /**
+     * Up to {@code limit} orders on the shard whose summary marker was written before
+     * {@code writtenBefore}, by id, with the users they belong to.
+     */
+    List<Placement> summaryPending(int shard, Instant writtenBefore, int limit) {
+        return jdbc(shard).getJdbcTemplate().query(
+                "select order_id, user_id from order_summary_pending where created_at < ? order by order_id"
+                        + " fetch first ? rows only",
+                (row, rowNum) -> new Placement(row.getLong(1), row.getLong(2)), Timestamp.from(writtenBefore), limit);
+    }
+
+    void clearSummaryPending(int shard, Collection<Long> orderIds) {
+        jdbc(shard).update("delete from order_summary_pending where order_id in (:orderIds)",
+                Collections.singletonMap("orderIds", orderIds));
+    }
+
+    long count(int shard) {
+        return jdbc(shard).getJdbcTemplate().queryForObject("select count(*) from user_order", Long.class);
+    }
+
+    /**
+     * Copies the order to {@code target} unless it is already there, then deletes it from
+     * {@code source}, each in a transaction of its own.
+     */
+    void move(long orderId, int source, int target) {
+        UserOrder order = findOne(source, "id = ?", orderId);
+        if (order == null) {
+            return;
+        }
+        shardTransactions.get(target).execute(status -> {
+            if (findOne(target, "id = ?", orderId) == null) {
+                insert(target, order);
+            }
+            return null;
+        });
+        shardTransactions.get(source).execute(status -> {
+            JdbcTemplate template = jdbc(source).getJdbcTemplate();
+            template.update("delete from user_order_line where order_id = ?", orderId);
+            template.update("delete from user_order where id = ?", orderId);
+            return null;
+        });
+    }
+
+    private List<UserOrder> withLines(int shard, List<UserOrder> orders) {
+        if (orders.isEmpty()) {
+            return orders;
+        }
+        Map<Long, List<OrderLine>> lines = new HashMap<>();
+        for (UserOrder order : orders) {
+            lines.put(order.getId(), new ArrayList<>());
+        }
+        jdbc(shard).query("select order_id, item_id, name, unit_price, quantity from user_order_line"
+                        + " where order_id in (:orderIds) order by order_id, line_index",
+                Collections.singletonMap("orderIds", lines.keySet()),
+                row -> {
+                    lines.get(row.getLong("order_id")).add(new OrderLine(row.getLong("item_id"), row.getString("name"),
+                            Money.toCents(row.getBigDecimal("unit_price")), row.getInt("quantity")));
+                });
+        for (UserOrder order : orders) {
+            order.setLines(lines.get(order.getId()));
+        }
+        return orders;
+    }
+
+    private static UserOrder toOrder(ResultSet row, User user) throws SQLException {
+        UserOrder order = new UserOrder();
+        order.setId(row.getLong("id"));
+        if (user == null) {
+            user = new User();
+            user.setId(row.getLong("user_id"));
+        }
+        order.setUser(user);
+        order.setReference(row.getString("reference"));
+        order.setCreatedAt(toInstant(row.getTimestamp("created_at")));
+        order.setTotalCents(Money.toCents(row.getBigDecimal("total")));
+        return order;
+    }
+
+    private static Instant toInstant(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toInstant();
+    }
+
+    private DataAccessException translate(int shard, String sql, SQLException e) {
+        return jdbc.get(shard).getJdbcTemplate().getExceptionTranslator().translate("Reading orders", sql, e);
+    }
+
+    /**
+     * Statements on the shard, in the current transaction if there is one.
+     */
+    NamedParameterJdbcTemplate jdbc(int shard) {
+        joinTransaction(router.shard(shard));
+        return jdbc.get(shard);
+    }
+
+    /**
+     * Binds a connection to the shard to the current transaction, if there is one and it does
+     * not hold one yet, so that the shard's statements commit or roll back with it.
+     */
+    private void joinTransaction(DataSource shard) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.hasResource(shard)) {
+            return;
+        }
+        Connection connection = null;
+        try {
+            connection = shard.getConnection();
+            connection.setAutoCommit(false);
+        } catch (SQLException e) {
+            JdbcUtils.closeConnection(connection);
+            throw new CannotGetJdbcConnectionException("Could not open a connection to an order shard", e);
+        }
+        ShardConnectionHolder holder = new ShardConnectionHolder(connection);
+        holder.setSynchronizedWithTransaction(true);
+        TransactionSynchronizationManager.bindResource(shard, holder);
+        TransactionSynchronizationManager.registerSynchronization(
+                new ShardTransaction(shard, holder, entityManagerFactory));
+    }
+
+    private static final class ShardConnectionHolder extends ConnectionHolder {
+        // orders saved in the transaction, whose summary markers go once it has committed
+        final List<Long> summaryPending = new ArrayList<>();
+
+        ShardConnectionHolder(Connection connection) {
+            super(connection);
+        }
+    }
+
+    private static final class ShardTransaction extends TransactionSynchronizationAdapter {
+        private final DataSource shard;
+        private final ShardConnectionHolder holder;
+        private final EntityManagerFactory entityManagerFactory;
+        private boolean committed;
+
+        ShardTransaction(DataSource shard, ShardConnectionHolder holder, EntityManagerFactory entityManagerFactory) {
+            this.shard = shard;
+            this.holder = holder;
+            this.entityManagerFactory = entityManagerFactory;
+        }
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(shard);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(shard, holder);
+        }
+
+        /**
+         * Runs after the other synchronizations' {@code beforeCommit}, as it has the lowest
+         * precedence. A statement of the application database that fails on the flush rolls the
+         * shard back with it; after the shard has committed, only the commit itself can fail.
+         */
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            EntityManagerHolder primary = (EntityManagerHolder) TransactionSynchronizationManager.getResource(
+                    entityManagerFactory);
+            if (!readOnly && primary != null) {
+                try {
+                    primary.getEntityManager().flush();
+                } catch (RuntimeException e) {
+                    DataAccessException translated = EntityManagerFactoryUtils.convertJpaAccessExceptionIfPossible(e);
+                    throw translated == null ? e : translated;
+                }
+            }
+            try {
+                holder.getConnection().commit();
+                committed = true;
+            } catch (SQLException e) {
+                throw new TransactionSystemException("Could not commit the order shard", e);
+            }
+        }
+
+        @Override
+        public void afterCommit() {
+            if (holder.summaryPending.isEmpty()) {
+                return;
+            }
+            Connection connection = holder.getConnection();
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "delete from order_summary_pending where order_id = ?")) {
+                for (Long orderId : holder.summaryPending) {
+                    statement.setLong(1, orderId);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                // the markers stay, costing the repairer a needless rebuild of their users' summaries
+                log.warn("Could not clear the summary markers of orders " + holder.summaryPending, e);
+                try {
+                    connection.rollback();
+                } catch (SQLException ignored) {
+                    // the connection is closed below either way
+                }
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(shard);
+            if (committed && status != STATUS_COMMITTED && !holder.summaryPending.isEmpty()) {
+                log.warn("Orders " + holder.summaryPending + " were committed on their shard but not in the"
+                        + " application database; their summaries are left to the repairer");
+            }
+            Connection connection = holder.getConnection();
+            try {
+                if (!committed) {
+                    connection.rollback();
+                }
+                connection.setAutoCommit(true);
+            } catch (SQLException e) {
+                log.warn("Could not roll back the order shard", e);
+            } finally {
+                JdbcUtils.closeConnection(connection);
+            }
+        }
+    }
+
+    static final class Placement {
+        final long orderId;
+        final long userId;
+
+        Placement(long orderId, long userId) {
+            this.orderId = orderId;
+            this.userId = userId;
+        }
+    }
+
+    private static final class Totals implements OrderRepository.Totals {
+        private final long orderCount;
+        private final Long totalSpentCents;
+        private final Long lastOrderId;
+
+        Totals(long orderCount, Long totalSpentCents, Long lastOrderId) {
+            this.orderCount = orderCount;
+            this.totalSpentCents = totalSpentCents;
+            this.lastOrderId = lastOrderId;
+        }
+
+        @Override
+        public long getOrderCount() {
+            return orderCount;
+        }
+
+        @Override
+        public Long getTotalSpentCents() {
+            return totalSpentCents;
+        }
+
+        @Override
+        public Long getLastOrderId() {
+            return lastOrderId;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.demo.threading;
+
+import org.apache.coyote.AbstractProtocol;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Opt-in mode ({@code server.tomcat.virtual-threads=true}, see the {@code virtual-threads}
+ * profile) in which Tomcat hands every request to a new virtual thread instead of its bounded
+ * worker pool. The controllers, repositories and JDBC calls of a request then all run on that
+ * virtual thread, so concurrency is limited by connections rather than by worker threads.
+ *
+ * <p>A virtual thread that blocks inside a {@code synchronized} block pins its carrier thread.
+ * Two paths on a request do that:
+ * <ul>
+ * <li>JDBC. The H2 driver synchronizes on the session for every statement. At most one thread
+ * per pooled connection can be inside it, so the carrier pool is sized above the connection pool
+ * and pinned JDBC calls cannot occupy every carrier.</li>
+ * <li>Logging. Log4j's console manager synchronizes every write. The profile switches to
+ * {@code log4j2-virtual-threads.xml}, where request threads only put events on a lock-based
+ * queue for an async appender.</li>
+ * </ul>
+ * BCrypt already runs on the platform threads of {@link com.example.demo.security.BoundedPasswordEncoder};
+ * a request waiting for it parks and frees its carrier.
+ */
+@Configuration
+@ConditionalOnProperty(name = "server.tomcat.virtual-threads", havingValue = "true")
+public class VirtualThreadConfiguration {
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadConfiguration.class);
+    static final String PARALLELISM_PROPERTY = "jdk.virtualThreadScheduler.parallelism";
+
+    // not a bean: an Executor bean would replace Spring MVC's async task executor
+    private ExecutorService requestExecutor;
+
+    @Bean
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> virtualThreadConnectorCustomizer(
+            @Value("${spring.datasource.hikari.maximum-pool-size:10}") int connectionPoolSize) {
+        // read by the JDK when the first virtual thread is created, so it must be set before that
+        if (System.getProperty(PARALLELISM_PROPERTY) == null) {
+            int parallelism = Math.max(Runtime.getRuntime().availableProcessors(), connectionPoolSize + 1);
+            System.setProperty(PARALLELISM_PROPERTY, Integer.toString(parallelism));
+        }
+        requestExecutor = VirtualThreads.newThreadPerTaskExecutor("http-virtual-")
+                .orElseThrow(() -> new IllegalStateException(
+                        "server.tomcat.virtual-threads=true needs a Java 21 or newer runtime, this is "
+                                + System.getProperty("java.version")));
+        log.info("Serving requests on virtual threads, " + PARALLELISM_PROPERTY + "="
+                + System.getProperty(PARALLELISM_PROPERTY));
+
+        return factory -> factory.addConnectorCustomizers(connector -> {
+            if (connector.getProtocolHandler() instanceof AbstractProtocol) {
+                ((AbstractProtocol<?>) connector.getProtocolHandler()).setExecutor(requestExecutor);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (requestExecutor != null) {
+            requestExecutor.shutdown();
+        }
+    }
+}
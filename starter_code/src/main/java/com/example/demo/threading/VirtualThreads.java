@@ -0,0 +1,58 @@
+package com.example.demo.threading;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Access to virtual threads (Java 21) from code compiled for Java 11. The project cannot target
+ * a newer release while it is on Spring 5.1, whose class-path scanning rejects class files newer
+ * than Java 12, so the Java 21 API is looked up reflectively and is simply reported as absent on
+ * older runtimes.
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    public static boolean isSupported() {
+        return factory("probe-").isPresent();
+    }
+
+    /**
+     * Returns an executor that starts a new virtual thread, named {@code prefix} plus a counter,
+     * for every task, or empty when the running JVM has no virtual threads.
+     */
+    public static Optional<ExecutorService> newThreadPerTaskExecutor(String prefix) {
+        return factory(prefix).map(factory -> {
+            try {
+                Method newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+                return (ExecutorService) newThreadPerTaskExecutor.invoke(null, factory);
+            } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+                throw new IllegalStateException("Virtual threads are available but their executor is not", e);
+            }
+        });
+    }
+
+    private static Optional<ThreadFactory> factory(String prefix) {
+        try {
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+            return Optional.of((ThreadFactory) builderType.getMethod("factory").invoke(builder));
+        } catch (ClassNotFoundException | NoSuchMethodException e) {
+            return Optional.empty();
+        } catch (InvocationTargetException e) {
+            // Java 19 and 20 have the API but throw unless preview features are enabled
+            if (e.getCause() instanceof UnsupportedOperationException) {
+                return Optional.empty();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
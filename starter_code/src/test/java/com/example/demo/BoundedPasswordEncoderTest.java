@@ -0,0 +1,95 @@
+package com.example.demo;
+
+import com.example.demo.security.BoundedPasswordEncoder;
+import com.example.demo.security.PasswordEncoderBusyException;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertTrue;
+import static junit.framework.TestCase.fail;
+
+public class BoundedPasswordEncoderTest {
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+    private BoundedPasswordEncoder encoder;
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        callers.shutdownNow();
+        encoder.close();
+    }
+
+    /**
+     * Encoder whose hashes block until the test releases them.
+     */
+    private PasswordEncoder blockingEncoder() {
+        return new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "hashed:" + rawPassword;
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                return encode(rawPassword).equals(encodedPassword);
+            }
+        };
+    }
+
+    @Test
+    public void testEncode_RunsOnPool() {
+        encoder = new BoundedPasswordEncoder(blockingEncoder(), 1, 1, Duration.ofSeconds(5));
+        release.countDown();
+
+        assertEquals("hashed:secret", encoder.encode("secret"));
+        assertTrue(encoder.matches("secret", "hashed:secret"));
+        assertEquals(2, encoder.getCompletedCount());
+        assertEquals(0, encoder.getRejectedCount());
+    }
+
+    @Test
+    public void testEncode_RejectsWhenQueueIsFull() throws Exception {
+        encoder = new BoundedPasswordEncoder(blockingEncoder(), 1, 1, Duration.ofSeconds(5));
+
+        callers.submit(() -> encoder.encode("running"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        callers.submit(() -> encoder.encode("queued"));
+        while (encoder.getQueueDepth() < 1) {
+            Thread.sleep(5);
+        }
+
+        long start = System.nanoTime();
+        try {
+            encoder.encode("rejected");
+            fail("Expected the full queue to reject the hash");
+        } catch (PasswordEncoderBusyException expected) {
+            // turned away without waiting for the running hash
+        }
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+        assertEquals(1, encoder.getRejectedCount());
+        assertEquals(1, encoder.getActiveCount());
+    }
+
+    @Test(expected = PasswordEncoderBusyException.class)
+    public void testEncode_TimesOutWaitingForResult() throws Exception {
+        encoder = new BoundedPasswordEncoder(blockingEncoder(), 1, 1, Duration.ofMillis(50));
+
+        encoder.encode("slow");
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.demo;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.CartLine;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.repositories.CartRepository;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.service.CartConflictException;
+import com.example.demo.service.CartService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class CartConcurrencyTest {
+    private static final int THREADS = 64;
+    private static final int UPDATES_PER_THREAD = 10;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private String username;
+    private List<Item> items;
+
+    @Before
+    public void setUp() {
+        items = itemRepository.findAll();
+        username = TestUsers.uniqueUsername("concurrent");
+        TestUsers.createWithCart(transactionManager, userRepository, cartRepository, username, cart -> { });
+    }
+
+    /**
+     * Every thread adds one unit of the first item and two of the second per update, so nothing
+     * may be missing from the cart afterwards.
+     */
+    private int hammer(CartService service) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < THREADS; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    int applied = 0;
+                    for (int j = 0; j < UPDATES_PER_THREAD; j++) {
+                        try {
+                            service.update(username, cart -> {
+                                cart.addItem(items.get(0));
+                                cart.addItem(items.get(1), 2);
+                                return true;
+                            });
+                            applied++;
+                        } catch (CartConflictException e) {
+                            // bounded retries may give up under this much contention; the update
+                            // is then not applied at all
+                        }
+                    }
+                    return applied;
+                }));
+            }
+            start.countDown();
+            int applied = 0;
+            for (Future<Integer> result : results) {
+                applied += result.get(2, TimeUnit.MINUTES);
+            }
+            return applied;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void assertCartHolds(int updates) {
+        new TransactionTemplate(transactionManager).execute(status -> {
+            Cart cart = userRepository.findByUsername(username).getCart();
+            Map<Long, Integer> quantities = cart.getLines().stream()
+                    .collect(Collectors.toMap(line -> line.getItem().getId(), CartLine::getQuantity));
+            assertEquals(Integer.valueOf(updates), quantities.get(items.get(0).getId()));
+            assertEquals(Integer.valueOf(2 * updates), quantities.get(items.get(1).getId()));
+            long expectedTotal = updates * (items.get(0).getPriceCents() + 2 * items.get(1).getPriceCents());
+            assertEquals(expectedTotal, cart.getTotalCents());
+            return null;
+        });
+    }
+
+    @Test
+    public void testUpdate_StripedLocksApplyEveryUpdate() throws Exception {
+        int applied = hammer(cartService);
+
+        assertEquals(THREADS * UPDATES_PER_THREAD, applied);
+        assertCartHolds(applied);
+    }
+
+    @Test
+    public void testUpdate_VersionCheckAloneLosesNothing() throws Exception {
+        // no in-process locks, as if every thread were a different instance of the application
+        CartService unlocked = new CartService(userRepository, cartRepository, transactionManager, 0, 5);
+
+        int applied = hammer(unlocked);
+
+        assertTrue(applied > 0);
+        assertCartHolds(applied);
+    }
+}
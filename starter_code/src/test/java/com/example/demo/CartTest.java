@@ -8,14 +8,25 @@ import com.example.demo.model.requests.ModifyCartRequest;
 import com.example.demo.model.persistence.repositories.CartRepository;
 import com.example.demo.model.persistence.repositories.ItemRepository;
 import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.security.AuthenticatedUser;
+import com.example.demo.service.CartService;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Optional;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -34,12 +45,17 @@ public class CartTest {
     @Before
     public void setUp() {
         cartController = new CartController();
-        Common.DependencyInjection(cartController, "userRepository", userRepository);
-        Common.DependencyInjection(cartController, "cartRepository", cartRepository);
         Common.DependencyInjection(cartController, "itemRepository", itemRepository);
+        Common.DependencyInjection(cartController, "cartService", new CartService(userRepository, cartRepository,
+                mock(PlatformTransactionManager.class), 16, 3));
         mockMvc = MockMvcBuilders.standaloneSetup(cartController).build();
     }
 
+    @After
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
     @Test
     public void testAddToCart_Success() throws Exception {
         User user = new User();
@@ -60,7 +76,7 @@ public class CartTest {
         request.setItemId(1L);
         request.setQuantity(2);
 
-        when(userRepository.findByUsername("testUser")).thenReturn(user);
+        when(userRepository.findWithCartByUsername("testUser")).thenReturn(user);
         when(itemRepository.findById(1L)).thenReturn(Optional.of(item));
         when(cartRepository.save(any(Cart.class))).thenReturn(cart);
 
@@ -69,11 +85,78 @@ public class CartTest {
                         .content("{\"username\":\"testUser\", \"itemId\":1, \"quantity\":2}"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.id").value(1L)) // Kiểm tra ID của giỏ hàng
-                .andExpect(jsonPath("$.items.size()").value(2)); // Kiểm tra số lượng items trong giỏ hàng
+                .andExpect(jsonPath("$.lines.size()").value(1))
+                .andExpect(jsonPath("$.lines[0].itemId").value(1L))
+                .andExpect(jsonPath("$.lines[0].quantity").value(2))
+                .andExpect(jsonPath("$.total").value(20.0));
 
         verify(cartRepository, times(1)).save(any(Cart.class));
     }
 
+    @Test
+    public void testAddToCart_CartFromTokenClaims() throws Exception {
+        Cart cart = new Cart();
+        cart.setId(5L);
+
+        Item item = new Item();
+        item.setId(1L);
+        item.setName("Test Item");
+        item.setPrice(BigDecimal.valueOf(10.00));
+
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                new AuthenticatedUser("testUser", 1L, 5L), null, Collections.emptyList()));
+        when(cartRepository.findWithLinesById(5L)).thenReturn(Optional.of(cart));
+        when(itemRepository.findById(1L)).thenReturn(Optional.of(item));
+
+        mockMvc.perform(post("/api/cart/addToCart")
+                        .contentType("application/json")
+                        .content("{\"username\":\"testUser\", \"itemId\":1, \"quantity\":1}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(5L))
+                .andExpect(jsonPath("$.lines[0].quantity").value(1));
+
+        verify(userRepository, never()).findWithCartByUsername(anyString());
+        verify(cartRepository, times(1)).save(cart);
+    }
+
+    @Test
+    public void testAddToCart_TokenForAnotherUser() throws Exception {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                new AuthenticatedUser("someoneElse", 2L, 6L), null, Collections.emptyList()));
+        when(userRepository.findWithCartByUsername("testUser")).thenReturn(null);
+
+        mockMvc.perform(post("/api/cart/addToCart")
+                        .contentType("application/json")
+                        .content("{\"username\":\"testUser\", \"itemId\":1, \"quantity\":1}"))
+                .andExpect(status().isNotFound());
+
+        verify(cartRepository, never()).findWithLinesById(anyLong());
+    }
+
+    @Test
+    public void testAddToCart_ConflictAfterRetries() throws Exception {
+        User user = new User();
+        user.setUsername("testUser");
+        Cart cart = new Cart();
+        cart.setId(1L);
+        user.setCart(cart);
+
+        Item item = new Item();
+        item.setId(1L);
+        item.setPrice(BigDecimal.valueOf(10.00));
+
+        when(userRepository.findWithCartByUsername("testUser")).thenReturn(user);
+        when(itemRepository.findById(1L)).thenReturn(Optional.of(item));
+        doThrow(new ObjectOptimisticLockingFailureException(Cart.class, 1L)).when(cartRepository).flush();
+
+        mockMvc.perform(post("/api/cart/addToCart")
+                        .contentType("application/json")
+                        .content("{\"username\":\"testUser\", \"itemId\":1, \"quantity\":1}"))
+                .andExpect(status().isConflict());
+
+        verify(cartRepository, times(3)).save(any(Cart.class));
+    }
+
     @Test
     public void testAddToCart_UserNotFound() throws Exception {
         ModifyCartRequest request = new ModifyCartRequest();
@@ -81,7 +164,7 @@ public class CartTest {
         request.setItemId(1L);
         request.setQuantity(2);
 
-        when(userRepository.findByUsername("nonExistentUser")).thenReturn(null);
+        when(userRepository.findWithCartByUsername("nonExistentUser")).thenReturn(null);
 
         mockMvc.perform(post("/api/cart/addToCart")
                         .contentType("application/json")
@@ -102,7 +185,7 @@ public class CartTest {
         request.setItemId(1L);
         request.setQuantity(2);
 
-        when(userRepository.findByUsername("testUser")).thenReturn(user);
+        when(userRepository.findWithCartByUsername("testUser")).thenReturn(user);
         when(itemRepository.findById(1L)).thenReturn(Optional.empty());
 
         mockMvc.perform(post("/api/cart/addToCart")
@@ -133,7 +216,7 @@ public class CartTest {
         request.setItemId(1L);
         request.setQuantity(1);
 
-        when(userRepository.findByUsername("testUser")).thenReturn(user);
+        when(userRepository.findWithCartByUsername("testUser")).thenReturn(user);
         when(itemRepository.findById(1L)).thenReturn(Optional.of(item));
         when(cartRepository.save(any(Cart.class))).thenReturn(cart);
 
@@ -142,7 +225,38 @@ public class CartTest {
                         .content("{\"username\":\"testUser\", \"itemId\":1, \"quantity\":1}"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.id").value(1L))
-                .andExpect(jsonPath("$.items.size()").value(0));
+                .andExpect(jsonPath("$.lines.size()").value(0));
+
+        verify(cartRepository, times(1)).save(any(Cart.class));
+    }
+
+    @Test
+    public void testRemoveFromCart_PartialQuantity() throws Exception {
+        User user = new User();
+        user.setUsername("testUser");
+        user.setId(1L);
+
+        Item item = new Item();
+        item.setId(1L);
+        item.setName("Test Item");
+        item.setPrice(BigDecimal.valueOf(10.00));
+
+        Cart cart = new Cart();
+        cart.setId(1L);
+        cart.addItem(item, 5);
+        user.setCart(cart);
+
+        when(userRepository.findWithCartByUsername("testUser")).thenReturn(user);
+        when(itemRepository.findById(1L)).thenReturn(Optional.of(item));
+        when(cartRepository.save(any(Cart.class))).thenReturn(cart);
+
+        mockMvc.perform(post("/api/cart/removeFromCart")
+                        .contentType("application/json")
+                        .content("{\"username\":\"testUser\", \"itemId\":1, \"quantity\":2}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.lines.size()").value(1))
+                .andExpect(jsonPath("$.lines[0].quantity").value(3))
+                .andExpect(jsonPath("$.total").value(30.0));
 
         verify(cartRepository, times(1)).save(any(Cart.class));
     }
@@ -154,7 +268,7 @@ public class CartTest {
         request.setItemId(1L);
         request.setQuantity(1);
 
-        when(userRepository.findByUsername("nonExistentUser")).thenReturn(null);
+        when(userRepository.findWithCartByUsername("nonExistentUser")).thenReturn(null);
 
         mockMvc.perform(post("/api/cart/removeFromCart")
                         .contentType("application/json")
@@ -175,7 +289,7 @@ public class CartTest {
         request.setItemId(1L);
         request.setQuantity(1);
 
-        when(userRepository.findByUsername("testUser")).thenReturn(user);
+        when(userRepository.findWithCartByUsername("testUser")).thenReturn(user);
         when(itemRepository.findById(1L)).thenReturn(Optional.empty());
 
         mockMvc.perform(post("/api/cart/removeFromCart")
@@ -185,4 +299,142 @@ public class CartTest {
 
         verify(cartRepository, never()).save(any(Cart.class));
     }
+
+    @Test
+    public void testBatch_Success() throws Exception {
+        User user = new User();
+        user.setUsername("testUser");
+        user.setId(1L);
+
+        Cart cart = new Cart();
+        cart.setId(1L);
+        user.setCart(cart);
+
+        Item item1 = new Item();
+        item1.setId(1L);
+        item1.setName("Item 1");
+        item1.setPrice(BigDecimal.valueOf(10.00));
+
+        Item item2 = new Item();
+        item2.setId(2L);
+        item2.setName("Item 2");
+        item2.setPrice(BigDecimal.valueOf(5.00));
+
+        when(userRepository.findWithCartByUsername("testUser")).thenReturn(user);
+        when(itemRepository.findAllById(any())).thenReturn(Arrays.asList(item1, item2));
+        when(cartRepository.save(any(Cart.class))).thenReturn(cart);
+
+        mockMvc.perform(post("/api/cart/batch")
+                        .contentType("application/json")
+                        .content("{\"username\":\"testUser\", \"operations\":["
+                                + "{\"itemId\":1, \"delta\":3},"
+                                + "{\"itemId\":2, \"delta\":2},"
+                                + "{\"itemId\":1, \"delta\":-1}]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.lines.size()").value(2))
+                .andExpect(jsonPath("$.lines[0].quantity").value(2))
+                .andExpect(jsonPath("$.lines[1].quantity").value(2))
+                .andExpect(jsonPath("$.total").value(30.0));
+
+        verify(itemRepository, times(1)).findAllById(any());
+        verify(itemRepository, never()).findById(anyLong());
+        verify(cartRepository, times(1)).save(any(Cart.class));
+    }
+
+    @Test
+    public void testBatch_ItemNotFound() throws Exception {
+        User user = new User();
+        user.setUsername("testUser");
+        user.setId(1L);
+
+        Item item1 = new Item();
+        item1.setId(1L);
+        item1.setName("Item 1");
+        item1.setPrice(BigDecimal.valueOf(10.00));
+
+        when(userRepository.findWithCartByUsername("testUser")).thenReturn(user);
+        when(itemRepository.findAllById(any())).thenReturn(Arrays.asList(item1));
+
+        mockMvc.perform(post("/api/cart/batch")
+                        .contentType("application/json")
+                        .content("{\"username\":\"testUser\", \"operations\":["
+                                + "{\"itemId\":1, \"delta\":1},"
+                                + "{\"itemId\":99, \"delta\":1}]}"))
+                .andExpect(status().isNotFound());
+
+        verify(cartRepository, never()).save(any(Cart.class));
+    }
+
+    @Test
+    public void testBatch_UserNotFound() throws Exception {
+        when(userRepository.findWithCartByUsername("nonExistentUser")).thenReturn(null);
+
+        mockMvc.perform(post("/api/cart/batch")
+                        .contentType("application/json")
+                        .content("{\"username\":\"nonExistentUser\", \"operations\":[{\"itemId\":1, \"delta\":1}]}"))
+                .andExpect(status().isNotFound());
+
+        verify(itemRepository, never()).findAllById(any());
+        verify(cartRepository, never()).save(any(Cart.class));
+    }
+
+    @Test
+    public void testBatch_NoOperations() throws Exception {
+        mockMvc.perform(post("/api/cart/batch")
+                        .contentType("application/json")
+                        .content("{\"username\":\"testUser\", \"operations\":[]}"))
+                .andExpect(status().isBadRequest());
+
+        verify(cartRepository, never()).save(any(Cart.class));
+    }
+
+    @Test
+    public void testCartTotal_ExactInCents() {
+        Item item = new Item();
+        item.setId(1L);
+        item.setPrice(new BigDecimal("0.10"));
+
+        Cart cart = new Cart();
+        for (int i = 0; i < 1000; i++) {
+            cart.addItem(item);
+        }
+        cart.removeItem(item, 3);
+
+        assertEquals(99_70L, cart.getTotalCents());
+        assertEquals(new BigDecimal("99.70"), cart.getTotal());
+    }
+
+    @Test
+    public void testCartTotal_RemovingAbsentItemKeepsTotal() {
+        Item inCart = new Item();
+        inCart.setId(1L);
+        inCart.setPrice(new BigDecimal("2.99"));
+        Item absent = new Item();
+        absent.setId(2L);
+        absent.setPrice(new BigDecimal("5.00"));
+
+        Cart cart = new Cart();
+        cart.addItem(inCart, 2);
+        cart.removeItem(absent);
+
+        assertEquals(new BigDecimal("5.98"), cart.getTotal());
+    }
+
+    @Test
+    public void testCartTotal_QuantityOverflowFails() {
+        Item item = new Item();
+        item.setId(1L);
+        item.setPrice(new BigDecimal("0.10"));
+
+        Cart cart = new Cart();
+        cart.addItem(item, Integer.MAX_VALUE);
+        try {
+            cart.addItem(item);
+            fail("Expected the quantity to overflow");
+        } catch (ArithmeticException expected) {
+        }
+
+        assertEquals(Integer.MAX_VALUE, cart.getLine(item).getQuantity());
+        assertEquals(Integer.MAX_VALUE * 10L, cart.getTotalCents());
+    }
 }
@@ -0,0 +1,140 @@
+package com.example.demo;
+
+import com.example.demo.logging.HttpEventCollectorAppender;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.impl.Log4jLogEvent;
+import org.apache.logging.log4j.message.SimpleMessage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HttpEventCollectorAppenderTest {
+    private HttpServer collector;
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private final List<String> authorizations = new CopyOnWriteArrayList<>();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private volatile boolean stalled;
+
+    @Before
+    public void setUp() throws IOException {
+        collector = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        collector.createContext("/services/collector/raw", exchange -> {
+            if (stalled) {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            requests.add(read(exchange.getRequestBody()));
+            authorizations.add(exchange.getRequestHeaders().getFirst("Authorization"));
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        collector.start();
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        collector.stop(0);
+    }
+
+    private static String read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] chunk = new byte[4096];
+        for (int n; (n = in.read(chunk)) != -1; ) {
+            out.write(chunk, 0, n);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private HttpEventCollectorAppender appender(int bufferSize, int batchSize, long batchIntervalMillis,
+                                                String overflowPolicy) {
+        HttpEventCollectorAppender appender = HttpEventCollectorAppender.createAppender("test",
+                "http://127.0.0.1:" + collector.getAddress().getPort(), "token", "localhost", "index", null,
+                "log4j", bufferSize, batchSize, batchIntervalMillis, overflowPolicy, 10, 0, 5000, null, null);
+        appender.start();
+        return appender;
+    }
+
+    private static LogEvent event(String message) {
+        return Log4jLogEvent.newBuilder()
+                .setLoggerName("test")
+                .setLevel(Level.INFO)
+                .setMessage(new SimpleMessage(message))
+                .build();
+    }
+
+    @Test
+    public void testDeliversEventsInBatches() {
+        HttpEventCollectorAppender appender = appender(100, 10, 60_000, "DROP");
+        for (int i = 0; i < 25; i++) {
+            appender.append(event("event " + i));
+        }
+        appender.stop(10, TimeUnit.SECONDS);
+
+        assertEquals(25, appender.getEnqueuedCount());
+        assertEquals(25, appender.getSentCount());
+        assertEquals(0, appender.getDroppedCount());
+        assertEquals(0, appender.getFailedCount());
+        assertEquals(3, requests.size());
+        assertEquals(10, requests.get(0).split("\n").length);
+        assertEquals("event 0", requests.get(0).split("\n")[0]);
+        assertEquals("Splunk token", authorizations.get(0));
+    }
+
+    @Test
+    public void testFlushesPartialBatchAfterInterval() throws InterruptedException {
+        HttpEventCollectorAppender appender = appender(100, 100, 50, "DROP");
+        appender.append(event("lonely event"));
+
+        for (int i = 0; i < 100 && appender.getSentCount() == 0; i++) {
+            Thread.sleep(20);
+        }
+
+        assertEquals(1, appender.getSentCount());
+        assertEquals("lonely event", requests.get(0));
+        appender.stop(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testDropsWhenBufferIsFullWithoutBlockingCaller() throws InterruptedException {
+        stalled = true;
+        HttpEventCollectorAppender appender = appender(5, 1, 10, "DROP");
+        appender.append(event("in flight"));
+        for (int i = 0; i < 100 && appender.getQueueDepth() > 0; i++) {
+            Thread.sleep(10);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 20; i++) {
+            appender.append(event("event " + i));
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(5, appender.getQueueDepth());
+        assertEquals(15, appender.getDroppedCount());
+        assertEquals(6, appender.getEnqueuedCount());
+        assertTrue("append blocked for " + elapsedMillis + "ms", elapsedMillis < 1000);
+
+        release.countDown();
+        appender.stop(10, TimeUnit.SECONDS);
+        assertEquals(6, appender.getSentCount());
+    }
+}
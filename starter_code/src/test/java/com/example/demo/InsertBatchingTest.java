@@ -0,0 +1,111 @@
+package com.example.demo;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.persistence.repositories.CartRepository;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.model.persistence.repositories.OrderRepository;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that inserts go out in JDBC batches: the statement count for a large order must stay
+ * far below one statement per row.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "order.outbox.enabled=false")
+public class InsertBatchingTest {
+    private static final int LINES = 1000;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transaction;
+    private Statistics statistics;
+    private List<Item> items;
+
+    @Before
+    public void setUp() {
+        transaction = new TransactionTemplate(transactionManager);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        items = transaction.execute(status -> {
+            List<Item> created = new ArrayList<>();
+            for (int i = 0; i < LINES; i++) {
+                Item item = new Item();
+                item.setName("Batch item " + i);
+                item.setDescription("Inserted by InsertBatchingTest");
+                item.setPrice(BigDecimal.valueOf(100 + i, 2));
+                created.add(item);
+            }
+            return itemRepository.saveAll(created);
+        });
+    }
+
+    @Test
+    public void testCartWithThousandLines_InsertedInBatches() {
+        statistics.clear();
+
+        Cart cart = newUserWithCart();
+
+        assertEquals(LINES, cart.getLines().size());
+        // 20 sequence calls and 20 insert batches for the lines, plus user and cart
+        assertTrue("statements: " + statistics.getPrepareStatementCount(),
+                statistics.getPrepareStatementCount() <= 50);
+    }
+
+    @Test
+    public void testOrderWithThousandLines_InsertedInBatches() {
+        Cart cart = newUserWithCart();
+        statistics.clear();
+
+        UserOrder order = transaction.execute(status ->
+                orderRepository.save(UserOrder.createFromCart(cartRepository.getOne(cart.getId()))));
+
+        assertEquals(LINES, order.getLines().size());
+        // reading the cart, one sequence call, the order row and 20 batches of order lines
+        assertTrue("statements: " + statistics.getPrepareStatementCount(),
+                statistics.getPrepareStatementCount() <= 30);
+    }
+
+    private Cart newUserWithCart() {
+        return TestUsers.createWithCart(transactionManager, userRepository, cartRepository,
+                TestUsers.uniqueUsername("batching"), cart -> {
+                    for (Item item : items) {
+                        cart.addItem(item);
+                    }
+                });
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.demo;
+
+import com.example.demo.model.persistence.Item;
+import com.example.demo.service.ItemSearchIndex;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ItemSearchIndexTest {
+    private ItemSearchIndex index;
+
+    @Before
+    public void setUp() {
+        index = new ItemSearchIndex();
+        index.replaceAll(Arrays.asList(
+                item(1L, "Round Widget", "A widget that is round"),
+                item(2L, "Square Widget", "A widget that is square"),
+                item(3L, "Round Table", "Seats four"),
+                item(4L, "Gadget", "Works well with any round widget")));
+    }
+
+    private static Item item(Long id, String name, String description) {
+        Item item = new Item();
+        item.setId(id);
+        item.setName(name);
+        item.setDescription(description);
+        item.setPrice(BigDecimal.ONE);
+        return item;
+    }
+
+    private List<Long> search(String query, int limit) {
+        return index.search(query, limit).stream().map(Item::getId).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testSearch_EveryTokenMustMatch() {
+        assertEquals(Arrays.asList(1L, 4L), search("round widget", 10));
+        assertEquals(Arrays.asList(2L), search("square wid", 10));
+    }
+
+    @Test
+    public void testSearch_NameMatchesRankAboveDescriptionMatches() {
+        // 4 only mentions "round" in its description; 1 and 3 tie and keep indexing order
+        assertEquals(Arrays.asList(1L, 3L, 4L), search("round", 10));
+        assertEquals(Arrays.asList(1L, 2L, 4L), search("wid", 10));
+    }
+
+    @Test
+    public void testSearch_PrefixAndInfix() {
+        assertEquals(Arrays.asList(3L), search("ta", 10));
+        assertEquals(Arrays.asList(4L), search("adg", 10));
+        assertTrue(search("xyz", 10).isEmpty());
+    }
+
+    @Test
+    public void testSearch_Limit() {
+        assertEquals(Arrays.asList(1L, 2L), search("widget", 2));
+    }
+
+    @Test
+    public void testIndex_ReplacesPreviousVersion() {
+        index.index(item(3L, "Oval Table", "Seats six"));
+
+        assertEquals(Arrays.asList(3L), search("oval", 10));
+        assertTrue(search("round table", 10).isEmpty());
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    public void testRemove() {
+        index.remove(2L);
+
+        assertTrue(search("square", 10).isEmpty());
+        assertEquals(3, index.size());
+    }
+}
@@ -3,6 +3,9 @@ package com.example.demo;
 import com.example.demo.controllers.ItemController;
 import com.example.demo.model.persistence.Item;
 import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.model.responses.ItemResponse;
+import com.example.demo.service.ItemCatalogService;
+import com.example.demo.service.ItemSearchIndex;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -12,11 +15,15 @@ import org.mockito.junit.MockitoJUnitRunner;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Optional;
 
+import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -30,12 +37,19 @@ public class ItemTest {
     @Mock
     private ItemRepository itemRepository;
 
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ItemCatalogService itemCatalogService;
+
     private MockMvc mockMvc;
 
     @Before
     public void setUp() {
         itemController = new ItemController();
-        Common.DependencyInjection(itemController, "itemRepository", itemRepository);
+        itemCatalogService = new ItemCatalogService(itemRepository, new ItemSearchIndex(),
+                transactionManager, 100, Duration.ofMinutes(10));
+        Common.DependencyInjection(itemController, "itemCatalogService", itemCatalogService);
         mockMvc = MockMvcBuilders.standaloneSetup(itemController).build();
     }
 
@@ -51,7 +65,7 @@ public class ItemTest {
         item2.setName("Item 2");
         item2.setPrice(BigDecimal.valueOf(20.0));
 
-        when(itemRepository.findAll()).thenReturn(Arrays.asList(item1, item2));
+        when(itemRepository.findAllResponses()).thenReturn(Arrays.asList(ItemResponse.of(item1), ItemResponse.of(item2)));
 
         mockMvc.perform(get("/api/item"))
                 .andExpect(status().isOk())
@@ -60,7 +74,7 @@ public class ItemTest {
                 .andExpect(jsonPath("$[1].id").value(2L))
                 .andExpect(jsonPath("$[1].name").value("Item 2"));
 
-        verify(itemRepository, times(1)).findAll();
+        verify(itemRepository, times(1)).findAllResponses();
     }
 
     @Test
@@ -70,7 +84,7 @@ public class ItemTest {
         item.setName("Item 1");
         item.setPrice(BigDecimal.valueOf(10.0));
 
-        when(itemRepository.findById(1L)).thenReturn(Optional.of(item));
+        when(itemRepository.findResponseById(1L)).thenReturn(Optional.of(ItemResponse.of(item)));
 
         mockMvc.perform(get("/api/item/1"))
                 .andExpect(status().isOk())
@@ -78,17 +92,17 @@ public class ItemTest {
                 .andExpect(jsonPath("$.name").value("Item 1"))
                 .andExpect(jsonPath("$.price").value(10.0));
 
-        verify(itemRepository, times(1)).findById(1L);
+        verify(itemRepository, times(1)).findResponseById(1L);
     }
 
     @Test
     public void testGetItemById_NotFound() throws Exception {
-        when(itemRepository.findById(1L)).thenReturn(Optional.empty());
+        when(itemRepository.findResponseById(1L)).thenReturn(Optional.empty());
 
         mockMvc.perform(get("/api/item/1"))
                 .andExpect(status().isNotFound());
 
-        verify(itemRepository, times(1)).findById(1L);
+        verify(itemRepository, times(1)).findResponseById(1L);
     }
 
     @Test
@@ -103,7 +117,7 @@ public class ItemTest {
         item2.setName("Item 1");
         item2.setPrice(BigDecimal.valueOf(20.0));
 
-        when(itemRepository.findByName("Item 1")).thenReturn(Arrays.asList(item1, item2));
+        when(itemRepository.findResponsesByName("Item 1")).thenReturn(Arrays.asList(ItemResponse.of(item1), ItemResponse.of(item2)));
 
         mockMvc.perform(get("/api/item/name/Item 1"))
                 .andExpect(status().isOk())
@@ -112,16 +126,90 @@ public class ItemTest {
                 .andExpect(jsonPath("$[1].id").value(2L))
                 .andExpect(jsonPath("$[1].name").value("Item 1"));
 
-        verify(itemRepository, times(1)).findByName("Item 1");
+        verify(itemRepository, times(1)).findResponsesByName("Item 1");
     }
 
     @Test
     public void testGetItemsByName_NotFound() throws Exception {
-        when(itemRepository.findByName("NonExistentItem")).thenReturn(null);
+        when(itemRepository.findResponsesByName("NonExistentItem")).thenReturn(Collections.emptyList());
 
         mockMvc.perform(get("/api/item/name/NonExistentItem"))
                 .andExpect(status().isNotFound());
 
-        verify(itemRepository, times(1)).findByName("NonExistentItem");
+        verify(itemRepository, times(1)).findResponsesByName("NonExistentItem");
+    }
+
+    @Test
+    public void testGetItemById_ServedFromCache() throws Exception {
+        Item item = new Item();
+        item.setId(1L);
+        item.setName("Item 1");
+        item.setPrice(BigDecimal.valueOf(10.0));
+
+        when(itemRepository.findResponseById(1L)).thenReturn(Optional.of(ItemResponse.of(item)));
+
+        mockMvc.perform(get("/api/item/1")).andExpect(status().isOk());
+        mockMvc.perform(get("/api/item/1")).andExpect(status().isOk());
+        mockMvc.perform(get("/api/item/1")).andExpect(status().isOk());
+
+        verify(itemRepository, times(1)).findResponseById(1L);
+        assertEquals(2, itemCatalogService.stats().get("items.byId").hitCount());
+        assertEquals(1, itemCatalogService.stats().get("items.byId").missCount());
+    }
+
+    @Test
+    public void testSaveItem_InvalidatesCachedLookups() throws Exception {
+        Item item = new Item();
+        item.setId(1L);
+        item.setName("Item 1");
+        item.setPrice(BigDecimal.valueOf(10.0));
+
+        Item renamed = new Item();
+        renamed.setId(1L);
+        renamed.setName("Item 1 renamed");
+        renamed.setPrice(BigDecimal.valueOf(12.0));
+
+        when(itemRepository.findResponseById(1L)).thenReturn(Optional.of(ItemResponse.of(item)), Optional.of(ItemResponse.of(renamed)));
+        when(itemRepository.findResponsesByName("Item 1")).thenReturn(Arrays.asList(ItemResponse.of(item)), Collections.emptyList());
+        when(itemRepository.save(renamed)).thenReturn(renamed);
+
+        mockMvc.perform(get("/api/item/1")).andExpect(jsonPath("$.name").value("Item 1"));
+        mockMvc.perform(get("/api/item/name/Item 1")).andExpect(status().isOk());
+
+        itemCatalogService.save(renamed);
+
+        mockMvc.perform(get("/api/item/1"))
+                .andExpect(jsonPath("$.name").value("Item 1 renamed"))
+                .andExpect(jsonPath("$.price").value(12.0));
+        mockMvc.perform(get("/api/item/name/Item 1")).andExpect(status().isNotFound());
+
+        verify(itemRepository, times(2)).findResponseById(1L);
+        verify(itemRepository, times(2)).findResponsesByName("Item 1");
+    }
+
+    @Test
+    public void testSearchItems_FindsSavedItemByPrefix() throws Exception {
+        Item item = new Item();
+        item.setId(3L);
+        item.setName("Triangle Widget");
+        item.setDescription("A widget with three corners");
+        item.setPrice(BigDecimal.valueOf(3.99));
+        when(itemRepository.save(item)).thenReturn(item);
+
+        itemCatalogService.save(item);
+
+        mockMvc.perform(get("/api/item/search").param("q", "tri wid"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()").value(1))
+                .andExpect(jsonPath("$[0].id").value(3L));
+        mockMvc.perform(get("/api/item/search").param("q", "square"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()").value(0));
+    }
+
+    @Test
+    public void testSearchItems_BlankQuery() throws Exception {
+        mockMvc.perform(get("/api/item/search").param("q", " "))
+                .andExpect(status().isBadRequest());
     }
 }
@@ -0,0 +1,102 @@
+package com.example.demo;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.example.demo.security.AuthenticatedUser;
+import com.example.demo.security.JWTTokenVerifier;
+import com.example.demo.security.SecurityConstants;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Date;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertNull;
+
+public class JWTTokenVerifierTest {
+    private JWTTokenVerifier tokenVerifier;
+
+    @Before
+    public void setUp() {
+        tokenVerifier = new JWTTokenVerifier(100);
+    }
+
+    private static String token(String subject, long expiresInMillis, String secret) {
+        return JWT.create()
+                .withSubject(subject)
+                .withExpiresAt(new Date(System.currentTimeMillis() + expiresInMillis))
+                .sign(Algorithm.HMAC512(secret.getBytes()));
+    }
+
+    @Test
+    public void testVerify_CachesVerifiedToken() {
+        String token = token("huytt13", SecurityConstants.EXPIRATION_TIME, SecurityConstants.SECRET);
+
+        assertEquals("huytt13", tokenVerifier.verify(token).getUsername());
+        assertEquals("huytt13", tokenVerifier.verify(token).getUsername());
+        assertEquals("huytt13", tokenVerifier.verify(token).getUsername());
+
+        assertEquals(1, tokenVerifier.missCount());
+        assertEquals(2, tokenVerifier.hitCount());
+    }
+
+    @Test
+    public void testVerify_DistinctTokensAreCachedSeparately() {
+        String first = token("huytt13", SecurityConstants.EXPIRATION_TIME, SecurityConstants.SECRET);
+        String second = token("another", SecurityConstants.EXPIRATION_TIME, SecurityConstants.SECRET);
+
+        assertEquals("huytt13", tokenVerifier.verify(first).getUsername());
+        assertEquals("another", tokenVerifier.verify(second).getUsername());
+        assertEquals("another", tokenVerifier.verify(second).getUsername());
+
+        assertEquals(2, tokenVerifier.missCount());
+        assertEquals(1, tokenVerifier.hitCount());
+    }
+
+    @Test
+    public void testVerify_ReadsIdClaims() {
+        String token = JWT.create()
+                .withSubject("huytt13")
+                .withClaim(SecurityConstants.USER_ID_CLAIM, 7L)
+                .withClaim(SecurityConstants.CART_ID_CLAIM, 9L)
+                .withExpiresAt(new Date(System.currentTimeMillis() + SecurityConstants.EXPIRATION_TIME))
+                .sign(Algorithm.HMAC512(SecurityConstants.SECRET.getBytes()));
+
+        AuthenticatedUser user = tokenVerifier.verify(token);
+
+        assertEquals("huytt13", user.getUsername());
+        assertEquals(Long.valueOf(7L), user.getUserId());
+        assertEquals(Long.valueOf(9L), user.getCartId());
+    }
+
+    @Test
+    public void testVerify_TokenWithoutIdClaims() {
+        AuthenticatedUser user = tokenVerifier.verify(
+                token("huytt13", SecurityConstants.EXPIRATION_TIME, SecurityConstants.SECRET));
+
+        assertNull(user.getUserId());
+        assertNull(user.getCartId());
+    }
+
+    @Test(expected = JWTVerificationException.class)
+    public void testVerify_WrongSignature() {
+        tokenVerifier.verify(token("huytt13", SecurityConstants.EXPIRATION_TIME, "notTheSecret"));
+    }
+
+    @Test
+    public void testVerify_ExpiredTokenIsNeverCached() {
+        String token = token("huytt13", -60_000, SecurityConstants.SECRET);
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                tokenVerifier.verify(token);
+            } catch (JWTVerificationException expected) {
+                // rejected on every attempt
+            }
+        }
+
+        assertEquals(2, tokenVerifier.missCount());
+        assertEquals(0, tokenVerifier.hitCount());
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.demo;
+
+import com.example.demo.model.requests.CreateUserRequest;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class MetricsEndpointTest {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Test
+    public void testPrometheusEndpoint_ReadableFromLocalhost() {
+        CreateUserRequest request = new CreateUserRequest();
+        request.setUsername("metrics");
+        request.setPassword("metricsPassword");
+        request.setConfirmPassword("metricsPassword");
+        restTemplate.postForEntity("/api/user/create", request, String.class);
+
+        ResponseEntity<String> response = restTemplate.getForEntity("/actuator/prometheus", String.class);
+
+        assertEquals(200, response.getStatusCodeValue());
+        String body = response.getBody();
+        assertTrue(body.contains("http_server_requests_seconds"));
+        assertTrue(body.contains("handler=\"UserController.createUser\""));
+        assertTrue(body.contains("quantile=\"0.999\""));
+        assertTrue(body.contains("hibernate_session_statements"));
+        assertTrue(body.contains("hikaricp_connections_acquire_seconds"));
+        assertTrue(body.contains("cache_gets_total{cache=\"jwt.tokens\""));
+        assertTrue(body.contains("cache_gets_total{cache=\"items.all\""));
+        assertTrue(body.contains("cache_gets_total{cache=\"entity.user\""));
+        assertTrue(body.contains("password_encoder_queue"));
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.demo;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.persistence.UserOrderSummary;
+import com.example.demo.model.persistence.repositories.CartRepository;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.model.persistence.repositories.OrderRepository;
+import com.example.demo.model.persistence.repositories.OrderStore;
+import com.example.demo.model.persistence.repositories.UserOrderSummaryRepository;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.responses.OrderReceipt;
+import com.example.demo.outbox.OrderOutbox;
+import com.example.demo.service.OrderIngestionService;
+import com.example.demo.service.OrderSummaryService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class OrderIngestionServiceTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderStore orderStore;
+
+    @Autowired
+    private OrderSummaryService orderSummaryService;
+
+    @Autowired
+    private UserOrderSummaryRepository summaryRepository;
+
+    @Autowired
+    private OrderOutbox orderOutbox;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private OrderIngestionService ingestion;
+    private Cart cart;
+
+    @Before
+    public void setUp() {
+        ingestion = new OrderIngestionService(orderStore, orderSummaryService, orderOutbox, entityManager, transactionManager,
+                1000, 50, Duration.ofMillis(10), Duration.ofMinutes(5));
+        List<Item> items = itemRepository.findAll();
+        cart = TestUsers.createWithCart(transactionManager, userRepository, cartRepository,
+                TestUsers.uniqueUsername("ingestion"), cart -> {
+                    cart.addItem(items.get(0), 2);
+                    cart.addItem(items.get(1));
+                });
+    }
+
+    @After
+    public void tearDown() {
+        ingestion.stop();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    public void testEnqueue_DrainsQueueOnStop() {
+        ingestion.start();
+        List<OrderReceipt> receipts = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            receipts.add(ingestion.enqueue(cart).get());
+        }
+
+        ingestion.stop();
+
+        assertEquals(0, ingestion.getQueueDepth());
+        assertEquals(120, ingestion.getPersistedCount());
+        for (OrderReceipt receipt : receipts) {
+            OrderReceipt status = ingestion.status(receipt.getReference()).get();
+            assertEquals(OrderReceipt.Status.PERSISTED, status.getStatus());
+            assertNotNull(status.getOrderId());
+        }
+        UserOrder stored = new TransactionTemplate(transactionManager).execute(status -> {
+            UserOrder order = orderRepository.findByReference(receipts.get(0).getReference());
+            order.getLines().size();
+            return order;
+        });
+        assertEquals(cart.getLines().size(), stored.getLines().size());
+        assertEquals(3, stored.getItemCount());
+        assertEquals(cart.getUser().getId(), stored.getUser().getId());
+        assertEquals(0, cart.getTotal().compareTo(stored.getTotal()));
+
+        UserOrderSummary summary = orderSummaryService.find(cart.getUser().getId());
+        assertEquals(120, summary.getOrderCount());
+        assertEquals(120 * cart.getTotalCents(), summary.getTotalSpentCents());
+    }
+
+    @Test
+    public void testEnqueue_MarksOrderForMissingUserFailed() {
+        ingestion.start();
+        User ghost = new User();
+        ghost.setId(Long.MAX_VALUE);
+        Cart orphan = new Cart();
+        orphan.setUser(ghost);
+
+        OrderReceipt good = ingestion.enqueue(cart).get();
+        OrderReceipt bad = ingestion.enqueue(orphan).get();
+        ingestion.stop();
+
+        assertEquals(OrderReceipt.Status.PERSISTED, ingestion.status(good.getReference()).get().getStatus());
+        assertEquals(OrderReceipt.Status.FAILED, ingestion.status(bad.getReference()).get().getStatus());
+    }
+
+    @Test
+    public void testStatus_QueuedReceiptOutlivesFinishedOnes() throws Exception {
+        // room for 20 finished receipts, far fewer than are written below
+        ingestion.stop();
+        ingestion = new OrderIngestionService(orderStore, orderSummaryService, orderOutbox, entityManager, transactionManager,
+                2, 50, Duration.ofMillis(10), Duration.ofMinutes(5));
+        ingestion.start();
+        for (int i = 0; i < 60; i++) {
+            while (!ingestion.enqueue(cart).isPresent()) {
+                Thread.sleep(1);
+            }
+        }
+        while (ingestion.getPersistedCount() < 60) {
+            Thread.sleep(10);
+        }
+
+        // the writer waits on the user's summary row while the test holds it
+        List<OrderReceipt> queued = new TransactionTemplate(transactionManager).execute(status -> {
+            summaryRepository.findForUpdate(cart.getUser().getId()).get();
+            List<OrderReceipt> receipts = new ArrayList<>();
+            receipts.add(ingestion.enqueue(cart).get());
+            receipts.add(ingestion.enqueue(cart).get());
+            // time for the finished receipts to be trimmed back to size
+            sleep(200);
+            for (OrderReceipt receipt : receipts) {
+                assertEquals(OrderReceipt.Status.QUEUED, ingestion.status(receipt.getReference()).get().getStatus());
+            }
+            return receipts;
+        });
+        ingestion.stop();
+
+        for (OrderReceipt receipt : queued) {
+            assertEquals(OrderReceipt.Status.PERSISTED, ingestion.status(receipt.getReference()).get().getStatus());
+        }
+    }
+
+    @Test
+    public void testEnqueue_RejectedAfterStop() {
+        ingestion.start();
+        ingestion.stop();
+
+        assertFalse(ingestion.enqueue(cart).isPresent());
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.demo;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.OrderEvent;
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.persistence.repositories.CartRepository;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.model.persistence.repositories.OrderEventStore;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.outbox.FileOrderEventSink;
+import com.example.demo.outbox.InMemoryOrderEventSink;
+import com.example.demo.outbox.OrderOutboxPublisher;
+import com.example.demo.service.OrderSummaryService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs on a database of its own, so that no other test context's publisher takes its events, and
+ * with the publisher's background thread off so that the tests drive it themselves.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:outbox;DB_CLOSE_DELAY=-1",
+        "order.outbox.sink=memory",
+        "order.outbox.batch-size=2",
+        "order.outbox.enabled=false"})
+public class OrderOutboxTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private OrderEventStore eventStore;
+
+    @Autowired
+    private OrderSummaryService orderSummaryService;
+
+    @Autowired
+    private OrderOutboxPublisher publisher;
+
+    @Autowired
+    private InMemoryOrderEventSink sink;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Cart cart;
+
+    @Before
+    public void setUp() {
+        publisher.publishPending();
+        Item item = itemRepository.findAll().get(0);
+        cart = TestUsers.createWithCart(transactionManager, userRepository, cartRepository,
+                TestUsers.uniqueUsername("outbox"), cart -> cart.addItem(item, 3));
+    }
+
+    private List<String> deliveredReferences() {
+        return sink.getEvents().stream().map(OrderEvent::getReference).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testPlace_EventDeliveredInBatches() {
+        List<String> references = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            references.add(orderSummaryService.place(UserOrder.createFromCart(cart)).getReference());
+        }
+        assertEquals(5, publisher.getPendingCount());
+        long delivered = publisher.getDeliveredCount();
+
+        assertEquals(5, publisher.publishPending());
+
+        assertEquals(delivered + 5, publisher.getDeliveredCount());
+        assertEquals(0, publisher.getPendingCount());
+        assertEquals(0, publisher.getLagMillis());
+        List<String> received = deliveredReferences();
+        assertEquals(references, received.subList(received.size() - 5, received.size()));
+        OrderEvent event = sink.getEvents().get(received.size() - 1);
+        assertEquals(OrderEvent.ORDER_PLACED, event.getType());
+        assertEquals(cart.getUser().getId(), event.getUserId().longValue());
+        assertEquals(3, event.getItemCount());
+        assertEquals(cart.getTotalCents(), event.getTotalCents());
+    }
+
+    @Test
+    public void testPlace_NoEventWhenOrderRolledBack() {
+        UserOrder order = new TransactionTemplate(transactionManager).execute(status -> {
+            UserOrder placed = orderSummaryService.place(UserOrder.createFromCart(cart));
+            status.setRollbackOnly();
+            return placed;
+        });
+
+        assertEquals(0, publisher.getPendingCount());
+        publisher.publishPending();
+        assertFalse(deliveredReferences().contains(order.getReference()));
+    }
+
+    @Test
+    public void testPublish_FailedBatchDeliveredAgainWithSameEventId() throws Exception {
+        UserOrder order = orderSummaryService.place(UserOrder.createFromCart(cart));
+        InMemoryOrderEventSink received = new InMemoryOrderEventSink(100);
+        AtomicInteger outages = new AtomicInteger(1);
+        List<String> attempts = new ArrayList<>();
+        OrderOutboxPublisher flaky = new OrderOutboxPublisher(eventStore, events -> {
+            attempts.add(events.get(0).getEventId());
+            if (outages.getAndDecrement() > 0) {
+                throw new IOException("sink unavailable");
+            }
+            received.deliver(events);
+        }, 10, Duration.ofHours(1), false);
+
+        assertEquals(0, flaky.publishPending());
+        assertEquals(1, flaky.getFailedCount());
+        assertEquals(1, flaky.getPendingCount());
+        assertTrue(flaky.getLagMillis() >= 0);
+
+        assertEquals(1, flaky.publishPending());
+        assertEquals(2, attempts.size());
+        assertEquals(attempts.get(0), attempts.get(1));
+        assertEquals(order.getReference(), received.getEvents().get(0).getReference());
+        assertEquals(0, flaky.getPendingCount());
+
+        // a redelivery, e.g. after the deletion failed to commit, is recognised by its event id
+        received.deliver(Collections.singletonList(received.getEvents().get(0)));
+        assertEquals(1, received.getEvents().size());
+        assertEquals(1, received.getDuplicateCount());
+    }
+
+    @Test
+    public void testFileSink_AppendsOneJsonLinePerEvent() throws Exception {
+        Path file = Files.createTempFile("order-events", ".jsonl");
+        try {
+            UserOrder order = orderSummaryService.place(UserOrder.createFromCart(cart));
+            FileOrderEventSink fileSink = new FileOrderEventSink(file, objectMapper);
+            OrderOutboxPublisher toFile = new OrderOutboxPublisher(eventStore, fileSink, 10,
+                    Duration.ofHours(1), false);
+
+            assertEquals(1, toFile.publishPending());
+
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            assertEquals(1, lines.size());
+            JsonNode event = objectMapper.readTree(lines.get(0));
+            assertEquals(order.getReference(), event.get("reference").asText());
+            assertEquals(order.getId().longValue(), event.get("orderId").asLong());
+            assertEquals("order.placed", event.get("type").asText());
+            assertEquals(36, event.get("eventId").asText().length());
+            assertFalse(event.has("id"));
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
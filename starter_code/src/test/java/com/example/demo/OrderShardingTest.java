@@ -0,0 +1,312 @@
+package com.example.demo;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.OrderEvent;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.persistence.UserOrderSummary;
+import com.example.demo.model.persistence.repositories.CartRepository;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.responses.OrderReceipt;
+import com.example.demo.outbox.InMemoryOrderEventSink;
+import com.example.demo.outbox.OrderOutboxPublisher;
+import com.example.demo.service.OrderIngestionService;
+import com.example.demo.service.OrderSummaryService;
+import com.example.demo.sharding.OrderSummaryRepairer;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessException;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Stores orders on three H2 databases besides the application's own and checks that each order
+ * lands on, and is read from, its user's shard only, and that a commit failing on one side leaves
+ * the user's summary consistent or repairable.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "order.sharding.urls=" + OrderShardingTest.SHARD_0 + "," + OrderShardingTest.SHARD_1 + ","
+                + OrderShardingTest.SHARD_2,
+        "order.outbox.sink=memory",
+        "order.outbox.enabled=false"})
+@AutoConfigureMockMvc(addFilters = false)
+public class OrderShardingTest {
+    static final String SHARD_0 = "jdbc:h2:mem:order-shard-0;DB_CLOSE_DELAY=-1";
+    static final String SHARD_1 = "jdbc:h2:mem:order-shard-1;DB_CLOSE_DELAY=-1";
+    static final String SHARD_2 = "jdbc:h2:mem:order-shard-2;DB_CLOSE_DELAY=-1";
+    private static final String[] SHARDS = {SHARD_0, SHARD_1, SHARD_2};
+    private static final String PRIMARY = "jdbc:h2:mem:bootapp;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private OrderSummaryService orderSummaryService;
+
+    @Autowired
+    private OrderIngestionService orderIngestionService;
+
+    @Autowired
+    private OrderSummaryRepairer orderSummaryRepairer;
+
+    @Autowired
+    private OrderOutboxPublisher publisher;
+
+    @Autowired
+    private InMemoryOrderEventSink sink;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private User user;
+    private Cart cart;
+
+    @Before
+    public void setUp() {
+        Item item = itemRepository.findAll().get(0);
+        cart = TestUsers.createWithCart(transactionManager, userRepository, cartRepository,
+                TestUsers.uniqueUsername("sharding"), cart -> cart.addItem(item, 2));
+        user = cart.getUser();
+    }
+
+    private String home() {
+        return SHARDS[(int) (user.getId() % SHARDS.length)];
+    }
+
+    private static int countOrders(String url, Long orderId) throws SQLException {
+        return count(url, "select count(*) from user_order where id = ?", orderId);
+    }
+
+    private static int countEvents(String url, Long orderId) throws SQLException {
+        return count(url, "select count(*) from sharded_order_outbox where order_id = ?", orderId);
+    }
+
+    private static int countSummaryPending(String url, Long orderId) throws SQLException {
+        return count(url, "select count(*) from order_summary_pending where order_id = ?", orderId);
+    }
+
+    private static int count(String url, String sql, Long orderId) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, orderId);
+            try (ResultSet row = statement.executeQuery()) {
+                row.next();
+                return row.getInt(1);
+            }
+        }
+    }
+
+    private static void update(String url, String sql, Object... parameters) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setObject(i + 1, parameters[i]);
+            }
+            statement.executeUpdate();
+        }
+    }
+
+    private void assertStoredOnHomeShardOnly(Long orderId) throws SQLException {
+        for (String shard : SHARDS) {
+            assertEquals(shard, shard.equals(home()) ? 1 : 0, countOrders(shard, orderId));
+        }
+        assertEquals(0, countOrders(PRIMARY, orderId));
+    }
+
+    @Test
+    public void testSubmit_StoredOnAndReadFromUsersShard() throws Exception {
+        UserOrder order = orderSummaryService.place(UserOrder.createFromCart(cart));
+
+        assertStoredOnHomeShardOnly(order.getId());
+        assertEquals(0, countSummaryPending(home(), order.getId()));
+        mockMvc.perform(get("/api/order/history/" + user.getUsername()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].reference").value(order.getReference()))
+                .andExpect(jsonPath("$[0].lines[0].quantity").value(2));
+        mockMvc.perform(get("/api/order/summary/" + user.getUsername()))
+                .andExpect(jsonPath("$.orderCount").value(1))
+                .andExpect(jsonPath("$.lastOrderId").value(order.getId()));
+    }
+
+    @Test
+    public void testSubmit_RolledBackWithItsTransaction() throws Exception {
+        UserOrder order = new TransactionTemplate(transactionManager).execute(status -> {
+            UserOrder placed = orderSummaryService.place(UserOrder.createFromCart(cart));
+            status.setRollbackOnly();
+            return placed;
+        });
+
+        for (String shard : SHARDS) {
+            assertEquals(0, countOrders(shard, order.getId()));
+            assertEquals(0, countEvents(shard, order.getId()));
+        }
+        mockMvc.perform(get("/api/order/history/" + user.getUsername()))
+                .andExpect(jsonPath("$", hasSize(0)));
+    }
+
+    @Test
+    public void testSubmit_ShardRolledBackWhenApplicationDatabaseFlushFails() throws Exception {
+        UserOrder order = UserOrder.createFromCart(cart);
+        try {
+            new TransactionTemplate(transactionManager).execute(status -> {
+                orderSummaryService.place(order);
+                // the summary row exists already, so inserting it again fails on the flush
+                entityManager.persist(new UserOrderSummary(user.getId()));
+                return null;
+            });
+            fail("Expected the flush to fail");
+        } catch (DataAccessException expected) {
+            // rolled back
+        }
+
+        for (String shard : SHARDS) {
+            assertEquals(0, countOrders(shard, order.getId()));
+            assertEquals(0, countSummaryPending(shard, order.getId()));
+            assertEquals(0, countEvents(shard, order.getId()));
+        }
+        assertEquals(0, orderSummaryService.find(user.getId()).getOrderCount());
+    }
+
+    @Test
+    public void testSubmit_SummaryRepairedWhenCommitFailsAfterShard() throws Exception {
+        UserOrder order = UserOrder.createFromCart(cart);
+        try {
+            new TransactionTemplate(transactionManager).execute(status -> {
+                orderSummaryService.place(order);
+                // registered after the shard's, so it runs once the shard has committed
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                    @Override
+                    public void beforeCommit(boolean readOnly) {
+                        throw new IllegalStateException("application database unavailable");
+                    }
+                });
+                return null;
+            });
+            fail("Expected the commit to fail");
+        } catch (IllegalStateException expected) {
+            // the application database rolled back
+        }
+        assertStoredOnHomeShardOnly(order.getId());
+        assertEquals(1, countSummaryPending(home(), order.getId()));
+        assertEquals(1, countEvents(home(), order.getId()));
+        assertEquals(0, orderSummaryService.find(user.getId()).getOrderCount());
+
+        assertEquals(1, orderSummaryRepairer.repair(Instant.now()));
+
+        UserOrderSummary summary = orderSummaryService.find(user.getId());
+        assertEquals(1, summary.getOrderCount());
+        assertEquals(order.getId(), summary.getLastOrderId());
+        assertEquals(0, countSummaryPending(home(), order.getId()));
+        assertEquals(0, orderSummaryRepairer.repair(Instant.now()));
+    }
+
+    @Test
+    public void testSubmit_EventStoredWithOrderAndDeliveredFromItsShard() throws Exception {
+        UserOrder order = orderSummaryService.place(UserOrder.createFromCart(cart));
+
+        for (String shard : SHARDS) {
+            assertEquals(shard, shard.equals(home()) ? 1 : 0, countEvents(shard, order.getId()));
+        }
+        assertEquals(0, count(PRIMARY, "select count(*) from order_outbox where order_id = ?", order.getId()));
+        assertTrue(publisher.getPendingCount() >= 1);
+
+        assertTrue(publisher.publishPending() >= 1);
+
+        assertEquals(0, countEvents(home(), order.getId()));
+        OrderEvent event = sink.getEvents().stream()
+                .filter(delivered -> delivered.getOrderId().equals(order.getId()))
+                .findFirst().get();
+        assertEquals(order.getReference(), event.getReference());
+        assertEquals(user.getId(), event.getUserId().longValue());
+        assertEquals(order.getTotalCents(), event.getTotalCents());
+        assertEquals(2, event.getItemCount());
+    }
+
+    @Test
+    public void testEnqueue_StoredOnUsersShard() throws Exception {
+        OrderReceipt receipt = orderIngestionService.enqueue(cart).get();
+        long deadline = System.currentTimeMillis() + 5000;
+        OrderReceipt status;
+        while ((status = orderIngestionService.status(receipt.getReference()).get()).getStatus()
+                == OrderReceipt.Status.QUEUED && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(OrderReceipt.Status.PERSISTED, status.getStatus());
+        assertStoredOnHomeShardOnly(status.getOrderId());
+    }
+
+    @Test
+    public void testRebalance_MovesOrderToUsersShard() throws Exception {
+        UserOrder order = orderSummaryService.place(UserOrder.createFromCart(cart));
+        // as if the order had been stored before the shard count changed
+        String previous = SHARDS[(int) ((user.getId() + 1) % SHARDS.length)];
+        update(previous, "insert into user_order (id, user_id, reference, created_at, total) values (?, ?, ?, ?, ?)",
+                order.getId(), user.getId(), order.getReference(), Timestamp.from(order.getCreatedAt()), order.getTotal());
+        update(previous, "insert into user_order_line (order_id, line_index, item_id, name, unit_price, quantity)"
+                        + " values (?, 0, ?, ?, ?, ?)", order.getId(), order.getLines().get(0).getItemId(),
+                order.getLines().get(0).getName(), order.getLines().get(0).getUnitPrice(), 2);
+        update(home(), "delete from user_order_line where order_id = ?", order.getId());
+        update(home(), "delete from user_order where id = ?", order.getId());
+        mockMvc.perform(get("/api/order/history/" + user.getUsername()))
+                .andExpect(jsonPath("$", hasSize(0)));
+
+        mockMvc.perform(post("/actuator/ordershards"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.moved").value(1));
+
+        assertStoredOnHomeShardOnly(order.getId());
+        mockMvc.perform(get("/api/order/history/" + user.getUsername()))
+                .andExpect(jsonPath("$[0].reference").value(order.getReference()))
+                .andExpect(jsonPath("$[0].lines[0].quantity").value(2));
+        mockMvc.perform(get("/actuator/ordershards"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.shard-0").isNumber());
+        mockMvc.perform(get("/actuator/metrics/hikaricp.connections").param("tag", "pool:order-shard-0"))
+                .andExpect(status().isOk());
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.demo;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.persistence.UserOrderSummary;
+import com.example.demo.model.persistence.repositories.CartRepository;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.model.persistence.repositories.UserOrderSummaryRepository;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.service.OrderSummaryService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class OrderSummaryServiceTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private UserOrderSummaryRepository summaryRepository;
+
+    @Autowired
+    private OrderSummaryService orderSummaryService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Cart cart;
+
+    /**
+     * Places an order for the test cart the way a request does: with the cart's items managed by
+     * the session that stores the order.
+     */
+    private UserOrder placeOrder() {
+        return new TransactionTemplate(transactionManager).execute(status ->
+                orderSummaryService.place(UserOrder.createFromCart(cartRepository.findById(cart.getId()).get())));
+    }
+
+    @Before
+    public void setUp() {
+        List<Item> items = itemRepository.findAll();
+        cart = TestUsers.createWithCart(transactionManager, userRepository, cartRepository,
+                TestUsers.uniqueUsername("summary"), cart -> {
+                    cart.addItem(items.get(0), 2);
+                    cart.addItem(items.get(1));
+                });
+    }
+
+    @Test
+    public void testPlace_ConcurrentOrdersAllCounted() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<UserOrder>> orders = new ArrayList<>();
+        try {
+            for (int i = 0; i < 40; i++) {
+                orders.add(executor.submit(this::placeOrder));
+            }
+            long lastOrderId = 0;
+            for (Future<UserOrder> order : orders) {
+                lastOrderId = Math.max(lastOrderId, order.get().getId());
+            }
+
+            UserOrderSummary summary = orderSummaryService.find(cart.getUser().getId());
+            assertEquals(40, summary.getOrderCount());
+            assertEquals(40 * cart.getTotalCents(), summary.getTotalSpentCents());
+            assertEquals(Long.valueOf(lastOrderId), summary.getLastOrderId());
+            assertNotNull(summary.getLastOrderAt());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testRebuild_RecomputesFromHistory() {
+        placeOrder();
+        UserOrder last = placeOrder();
+        Long userId = cart.getUser().getId();
+        summaryRepository.deleteById(userId);
+
+        orderSummaryService.rebuild();
+
+        UserOrderSummary summary = orderSummaryService.find(userId);
+        assertEquals(2, summary.getOrderCount());
+        assertEquals(2 * cart.getTotalCents(), summary.getTotalSpentCents());
+        assertEquals(last.getId(), summary.getLastOrderId());
+        assertEquals(last.getCreatedAt().truncatedTo(ChronoUnit.MILLIS),
+                summary.getLastOrderAt().truncatedTo(ChronoUnit.MILLIS));
+    }
+}
@@ -1,24 +1,54 @@
 package com.example.demo.controllers;
 
+import com.example.demo.Common;
 import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
 import com.example.demo.model.persistence.User;
 import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.persistence.UserOrderSummary;
+import com.example.demo.model.persistence.repositories.CartRepository;
+import com.example.demo.model.persistence.repositories.JpaOrderStore;
 import com.example.demo.model.persistence.repositories.OrderRepository;
+import com.example.demo.model.persistence.repositories.UserOrderSummaryRepository;
 import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.responses.OrderHistoryPage;
+import com.example.demo.model.responses.OrderLineResponse;
+import com.example.demo.model.responses.OrderReceipt;
+import com.example.demo.model.responses.OrderResponse;
+import com.example.demo.outbox.OrderOutbox;
+import com.example.demo.security.AuthenticatedUser;
+import com.example.demo.service.OrderHistoryService;
+import com.example.demo.service.OrderIngestionService;
+import com.example.demo.service.OrderSummaryService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.io.ByteArrayOutputStream;
 import java.math.BigDecimal;
-import java.util.ArrayList;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.mockito.Mockito.*;
 
 public class OrderTest {
@@ -29,16 +59,35 @@ public class OrderTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private CartRepository cartRepository;
+
     @Mock
     private OrderRepository orderRepository;
 
+    @Mock
+    private UserOrderSummaryRepository summaryRepository;
+
+    @Mock
+    private OrderIngestionService orderIngestionService;
+
+    @Mock
+    private OrderOutbox orderOutbox;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     private User user;
     private Cart cart;
-    private List<UserOrder> userOrders;
 
     @Before
     public void setUp() {
         MockitoAnnotations.initMocks(this);
+        Common.DependencyInjection(orderController, "orderHistoryService",
+                new OrderHistoryService(new JpaOrderStore(orderRepository), new ObjectMapper(), transactionManager));
+        Common.DependencyInjection(orderController, "orderSummaryService",
+                new OrderSummaryService(new JpaOrderStore(orderRepository), summaryRepository, userRepository,
+                        orderOutbox, transactionManager));
 
         user = new User();
         user.setId(1L);
@@ -48,32 +97,178 @@ public class OrderTest {
         cart.setId(1L);
         cart.setUser(user);
         cart.setTotal(new BigDecimal("100.00"));
-        cart.setItems(cart.getItems() == null ? new ArrayList<>() : cart.getItems());
-
-        UserOrder order = UserOrder.createFromCart(cart);
-        userOrders = Arrays.asList(order);
 
         user.setCart(cart);
+        when(summaryRepository.addOrder(anyLong(), anyLong(), any(), any())).thenReturn(1);
+    }
+
+    @After
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private static void authenticateWithClaims(String username, Long userId, Long cartId) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                new AuthenticatedUser(username, userId, cartId), null, Collections.emptyList()));
     }
 
     @Test
     public void testSubmitOrder_UserFound() {
-        when(userRepository.findByUsername("huytt13")).thenReturn(user);
+        when(userRepository.findWithCartByUsername("huytt13")).thenReturn(user);
 
-        ResponseEntity<UserOrder> response = orderController.submit("huytt13");
+        ResponseEntity<OrderResponse> response = orderController.submit("huytt13");
 
         assertNotNull(response);
         assertEquals(200, response.getStatusCodeValue());
-        assertEquals(user, response.getBody().getUser());
+        assertEquals(100_00L, response.getBody().getTotalCents());
+
+        verify(orderRepository, times(1)).save(argThat((UserOrder order) -> order.getUser() == user));
+    }
+
+    @Test
+    public void testSubmitOrder_AddsToSummary() {
+        when(userRepository.findWithCartByUsername("huytt13")).thenReturn(user);
+
+        OrderResponse order = orderController.submit("huytt13").getBody();
+
+        verify(summaryRepository, times(1)).addOrder(1L, 100_00L, order.getId(), order.getCreatedAt());
+        verify(summaryRepository, never()).saveAndFlush(any(UserOrderSummary.class));
+    }
+
+    @Test
+    public void testSubmitOrder_LinesKeepSubmitTimePrice() {
+        Item item = new Item();
+        item.setId(7L);
+        item.setName("Round Widget");
+        item.setPrice(new BigDecimal("2.99"));
+        Cart filled = new Cart();
+        filled.setUser(user);
+        filled.addItem(item, 2);
+        user.setCart(filled);
+        when(userRepository.findWithCartByUsername("huytt13")).thenReturn(user);
+
+        OrderResponse order = orderController.submit("huytt13").getBody();
+        item.setName("Square Widget");
+        item.setPrice(new BigDecimal("9.99"));
+
+        assertEquals(1, order.getLines().size());
+        OrderLineResponse line = order.getLines().get(0);
+        assertEquals(Long.valueOf(7L), line.getItemId());
+        assertEquals("Round Widget", line.getName());
+        assertEquals(299L, line.getUnitPriceCents());
+        assertEquals(2, line.getQuantity());
+        assertEquals(598L, order.getTotalCents());
+    }
+
+    @Test
+    public void testGetOrderSummary_UserFound() {
+        UserOrderSummary summary = new UserOrderSummary(1L);
+        summary.reset(1, 100_00L, 7L, Instant.now());
+        when(userRepository.findIdByUsername("huytt13")).thenReturn(1L);
+        when(summaryRepository.findById(1L)).thenReturn(Optional.of(summary));
+
+        ResponseEntity<UserOrderSummary> response = orderController.getOrderSummaryForUser("huytt13");
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(1, response.getBody().getOrderCount());
+        assertEquals(Long.valueOf(7L), response.getBody().getLastOrderId());
+        verify(orderRepository, never()).findByUser(any(User.class));
+    }
 
-        verify(orderRepository, times(1)).save(any(UserOrder.class));
+    @Test
+    public void testGetOrderSummary_NoOrders() {
+        when(userRepository.findIdByUsername("huytt13")).thenReturn(1L);
+
+        ResponseEntity<UserOrderSummary> response = orderController.getOrderSummaryForUser("huytt13");
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(0, response.getBody().getOrderCount());
+        assertNull(response.getBody().getLastOrderId());
+    }
+
+    @Test
+    public void testGetOrderSummary_UserNotFound() {
+        when(userRepository.findIdByUsername("notExistUser")).thenReturn(null);
+
+        ResponseEntity<UserOrderSummary> response = orderController.getOrderSummaryForUser("notExistUser");
+
+        assertEquals(404, response.getStatusCodeValue());
+    }
+
+    @Test
+    public void testSubmitOrder_CartFromTokenClaims() {
+        authenticateWithClaims("huytt13", 1L, 1L);
+        when(cartRepository.findWithLinesById(1L)).thenReturn(Optional.of(cart));
+
+        ResponseEntity<OrderResponse> response = orderController.submit("huytt13");
+
+        assertEquals(200, response.getStatusCodeValue());
+        verify(userRepository, never()).findWithCartByUsername(anyString());
+        verify(orderRepository, times(1)).save(argThat((UserOrder order) -> order.getUser() == user));
+    }
+
+    @Test
+    public void testGetOrdersForUser_UserFromTokenClaims() {
+        authenticateWithClaims("huytt13", 1L, 1L);
+        List<OrderResponse> orders = Arrays.asList(response(1L));
+        when(orderRepository.findResponsesByUserId(1L, 0L, Pageable.unpaged())).thenReturn(orders);
+
+        ResponseEntity<List<OrderResponse>> response = orderController.getOrdersForUser("huytt13");
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(orders, response.getBody());
+        verify(userRepository, never()).findIdByUsername(anyString());
+    }
+
+    @Test
+    public void testEnqueueOrder_Accepted() {
+        when(userRepository.findWithCartByUsername("huytt13")).thenReturn(user);
+        OrderReceipt receipt = new OrderReceipt("ref-1", OrderReceipt.Status.QUEUED, null);
+        when(orderIngestionService.enqueue(cart)).thenReturn(Optional.of(receipt));
+
+        ResponseEntity<OrderReceipt> response = orderController.enqueue("huytt13");
+
+        assertEquals(202, response.getStatusCodeValue());
+        assertEquals(receipt, response.getBody());
+        assertEquals("/api/order/status/ref-1", response.getHeaders().getLocation().toString());
+        verify(orderRepository, never()).save(any(UserOrder.class));
+    }
+
+    @Test
+    public void testEnqueueOrder_QueueFull() {
+        when(userRepository.findWithCartByUsername("huytt13")).thenReturn(user);
+        when(orderIngestionService.enqueue(cart)).thenReturn(Optional.empty());
+
+        ResponseEntity<OrderReceipt> response = orderController.enqueue("huytt13");
+
+        assertEquals(503, response.getStatusCodeValue());
+        assertNotNull(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+    }
+
+    @Test
+    public void testEnqueueOrder_UserNotFound() {
+        when(userRepository.findWithCartByUsername("notExistUser")).thenReturn(null);
+
+        ResponseEntity<OrderReceipt> response = orderController.enqueue("notExistUser");
+
+        assertEquals(404, response.getStatusCodeValue());
+        verify(orderIngestionService, never()).enqueue(any(Cart.class));
+    }
+
+    @Test
+    public void testGetOrderStatus_Unknown() {
+        when(orderIngestionService.status("missing")).thenReturn(Optional.empty());
+
+        ResponseEntity<OrderReceipt> response = orderController.getOrderStatus("missing");
+
+        assertEquals(404, response.getStatusCodeValue());
     }
 
     @Test
     public void testSubmitOrder_UserNotFound() {
-        when(userRepository.findByUsername("notExistUser")).thenReturn(null);
+        when(userRepository.findWithCartByUsername("notExistUser")).thenReturn(null);
 
-        ResponseEntity<UserOrder> response = orderController.submit("notExistUser");
+        ResponseEntity<OrderResponse> response = orderController.submit("notExistUser");
 
         assertNotNull(response);
         assertEquals(404, response.getStatusCodeValue());
@@ -83,27 +278,94 @@ public class OrderTest {
 
     @Test
     public void testGetOrdersForUser_UserFound() {
-        when(userRepository.findByUsername("huytt13")).thenReturn(user);
-        when(orderRepository.findByUser(user)).thenReturn(userOrders);
+        when(userRepository.findIdByUsername("huytt13")).thenReturn(1L);
+        List<OrderResponse> orders = Arrays.asList(response(1L), response(2L));
+        when(orderRepository.findResponsesByUserId(1L, 0L, Pageable.unpaged())).thenReturn(orders);
+        when(orderRepository.findResponseLines(new HashSet<>(Arrays.asList(1L, 2L)))).thenReturn(Arrays.asList(
+                new OrderLineResponse(1L, 7L, "Round Widget", 299L, 2),
+                new OrderLineResponse(2L, 7L, "Round Widget", 299L, 1),
+                new OrderLineResponse(2L, 8L, "Square Widget", 199L, 1)));
 
-        ResponseEntity<List<UserOrder>> response = orderController.getOrdersForUser("huytt13");
+        ResponseEntity<List<OrderResponse>> response = orderController.getOrdersForUser("huytt13");
 
         assertNotNull(response);
         assertEquals(200, response.getStatusCodeValue());
-        assertEquals(userOrders, response.getBody());
+        assertEquals(orders, response.getBody());
+        assertEquals(1, response.getBody().get(0).getLines().size());
+        assertEquals(2, response.getBody().get(1).getLines().size());
 
-        verify(orderRepository, times(1)).findByUser(user);
+        // one query for the orders and one for all of their lines
+        verify(orderRepository, times(1)).findResponseLines(any());
     }
 
     @Test
     public void testGetOrdersForUser_UserNotFound() {
-        when(userRepository.findByUsername("notExistUser")).thenReturn(null);
+        when(userRepository.findIdByUsername("notExistUser")).thenReturn(null);
 
-        ResponseEntity<List<UserOrder>> response = orderController.getOrdersForUser("notExistUser");
+        ResponseEntity<List<OrderResponse>> response = orderController.getOrdersForUser("notExistUser");
 
         assertNotNull(response);
         assertEquals(404, response.getStatusCodeValue());
 
-        verify(orderRepository, never()).findByUser(any(User.class));
+        verify(orderRepository, never()).findResponsesByUserId(any(), any(), any());
+    }
+
+    private static OrderResponse response(long id) {
+        return new OrderResponse(id, "ref-" + id, Instant.now(), 100_00L);
+    }
+
+    @Test
+    public void testGetOrderPageForUser_HasNextPage() {
+        List<OrderResponse> orders = Arrays.asList(response(11L), response(12L), response(13L));
+        when(userRepository.findIdByUsername("huytt13")).thenReturn(1L);
+        when(orderRepository.findResponsesByUserId(1L, 10L, PageRequest.of(0, 3)))
+                .thenReturn(orders);
+
+        ResponseEntity<OrderHistoryPage> response = orderController.getOrderPageForUser("huytt13", 10L, 2);
+
+        assertNotNull(response);
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(orders.subList(0, 2), response.getBody().getOrders());
+        assertEquals(Long.valueOf(12L), response.getBody().getNext());
+    }
+
+    @Test
+    public void testGetOrderPageForUser_LastPage() {
+        List<OrderResponse> orders = Arrays.asList(response(1L), response(2L));
+        when(userRepository.findIdByUsername("huytt13")).thenReturn(1L);
+        when(orderRepository.findResponsesByUserId(1L, 0L, PageRequest.of(0, 21)))
+                .thenReturn(orders);
+
+        ResponseEntity<OrderHistoryPage> response = orderController.getOrderPageForUser("huytt13", null, 20);
+
+        assertNotNull(response);
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(orders, response.getBody().getOrders());
+        assertNull(response.getBody().getNext());
+    }
+
+    @Test
+    public void testGetOrderPageForUser_UserNotFound() {
+        when(userRepository.findIdByUsername("notExistUser")).thenReturn(null);
+
+        ResponseEntity<OrderHistoryPage> response = orderController.getOrderPageForUser("notExistUser", null, 20);
+
+        assertEquals(404, response.getStatusCodeValue());
+        verify(orderRepository, never()).findResponsesByUserId(any(), any(), any());
+    }
+
+    @Test
+    public void testStreamOrdersForUser_WritesOneLinePerOrder() throws Exception {
+        when(userRepository.findIdByUsername("huytt13")).thenReturn(1L);
+        when(orderRepository.streamResponsesByUserId(1L)).thenReturn(Stream.of(response(1L), response(2L)));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        orderController.streamOrdersForUser("huytt13").getBody().writeTo(out);
+
+        String[] lines = new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertEquals(1L, new ObjectMapper().readTree(lines[0]).get("id").asLong());
+        assertEquals(2L, new ObjectMapper().readTree(lines[1]).get("id").asLong());
+        verify(orderRepository, times(1)).findResponseLines(new HashSet<>(Arrays.asList(1L, 2L)));
     }
 }
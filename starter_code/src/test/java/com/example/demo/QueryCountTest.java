@@ -0,0 +1,189 @@
+package com.example.demo;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.persistence.repositories.CartRepository;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.security.AuthenticatedUser;
+import com.example.demo.service.OrderSummaryService;
+import org.junit.After;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultMatcher;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Statement budgets for the cart and order endpoints, run against the real schema. Each budget
+ * is independent of how many lines a cart has or how many orders a user has placed, so a change
+ * that brings back per-row loading fails here instead of in production. The outbox publisher is
+ * kept off, since its polls would be counted against whichever request they overlap.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "order.outbox.enabled=false")
+@AutoConfigureMockMvc(addFilters = false)
+public class QueryCountTest {
+    private static final int ITEMS = 10;
+    private static final int ORDERS = 10;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private OrderSummaryService orderSummaryService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Statistics statistics;
+    private String username;
+    private User user;
+    private List<Item> items;
+
+    @Before
+    public void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        username = TestUsers.uniqueUsername("queries");
+        items = new ArrayList<>();
+        for (int i = 0; i < ITEMS; i++) {
+            Item item = new Item();
+            item.setName("Counted item " + i);
+            item.setDescription("Inserted by QueryCountTest");
+            item.setPrice(BigDecimal.valueOf(100 + i, 2));
+            items.add(item);
+        }
+        itemRepository.saveAll(items);
+        user = new TransactionTemplate(transactionManager).execute(status -> {
+            Cart cart = TestUsers.createWithCart(transactionManager, userRepository, cartRepository, username,
+                    created -> {
+                        for (Item item : items) {
+                            created.addItem(item);
+                        }
+                    });
+            // through the summary service, so that the user's order summary exists as it would
+            // after a first checkout
+            for (int i = 0; i < ORDERS; i++) {
+                orderSummaryService.place(UserOrder.createFromCart(cart));
+            }
+            return cart.getUser();
+        });
+    }
+
+    @After
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private void authenticateWithClaims() {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                new AuthenticatedUser(username, user.getId(), user.getCart().getId()), null, Collections.emptyList()));
+    }
+
+    private void assertStatements(long budget, RequestBuilder request, ResultMatcher expected) throws Exception {
+        statistics.clear();
+        mockMvc.perform(request).andExpect(expected);
+        long statements = statistics.getPrepareStatementCount();
+        assertTrue(statements + " statements, budget " + budget, statements <= budget);
+    }
+
+    private RequestBuilder addToCart() {
+        return post("/api/cart/addToCart")
+                .contentType("application/json")
+                .content("{\"username\":\"" + username + "\", \"itemId\":" + items.get(0).getId() + ", \"quantity\":1}");
+    }
+
+    @Test
+    public void testGetCart() throws Exception {
+        // the cart row and its lines with their item names
+        assertStatements(2, get("/api/cart/" + username), status().isOk());
+    }
+
+    @Test
+    public void testAddToCart() throws Exception {
+        // the item, the user with cart, lines and items, and the cart and line updates
+        assertStatements(4, addToCart(), status().isOk());
+    }
+
+    @Test
+    public void testAddToCart_CartFromTokenClaims() throws Exception {
+        authenticateWithClaims();
+        assertStatements(4, addToCart(), status().isOk());
+    }
+
+    @Test
+    public void testBatch() throws Exception {
+        // as above with both items in one lookup, plus deleting the emptied line
+        assertStatements(5, post("/api/cart/batch")
+                .contentType("application/json")
+                .content("{\"username\":\"" + username + "\", \"operations\":[{\"itemId\":" + items.get(0).getId()
+                        + ", \"delta\":1}, {\"itemId\":" + items.get(1).getId() + ", \"delta\":-1}]}"),
+                status().isOk());
+    }
+
+    @Test
+    public void testSubmitOrder() throws Exception {
+        // the cart with lines and items, the order row, one batch of order lines, the summary
+        // update and the outbox event, plus one call to the order and one to the outbox sequence
+        // whenever its pooled id block runs out
+        assertStatements(7, post("/api/order/submit/" + username), status().isOk());
+    }
+
+    @Test
+    public void testSubmitOrder_CartFromTokenClaims() throws Exception {
+        authenticateWithClaims();
+        assertStatements(7, post("/api/order/submit/" + username), status().isOk());
+    }
+
+    @Test
+    public void testOrderHistory() throws Exception {
+        // the user id, the orders and all of their lines
+        assertStatements(3, get("/api/order/history/" + username), status().isOk());
+    }
+
+    @Test
+    public void testOrderHistoryPage() throws Exception {
+        assertStatements(3, get("/api/order/history/" + username + "/page").param("size", "5"), status().isOk());
+    }
+
+    @Test
+    public void testOrderSummary() throws Exception {
+        assertStatements(2, get("/api/order/summary/" + username), status().isOk());
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.demo;
+
+import com.example.demo.datasource.ReadReplicaRoutingDataSource;
+import com.example.demo.datasource.ReplicaLagMonitor;
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.persistence.repositories.CartRepository;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.service.OrderSummaryService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.File;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Runs the application against two H2 databases, a primary and a replica. H2 does not replicate,
+ * so {@link #replicate()} stands in for it by copying the primary into the replica; the tests then
+ * change rows on one side only to see which database a request was served from.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + ReadReplicaRoutingTest.PRIMARY_URL,
+        "spring.datasource.replica.url=" + ReadReplicaRoutingTest.REPLICA_URL,
+        "spring.datasource.replica.max-lag=5s",
+        // measured by the tests themselves
+        "spring.datasource.replica.heartbeat-interval=1h"})
+@AutoConfigureMockMvc(addFilters = false)
+public class ReadReplicaRoutingTest {
+    static final String PRIMARY_URL = "jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1";
+    static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private OrderSummaryService orderSummaryService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private ReadReplicaRoutingDataSource routingDataSource;
+    private ReplicaLagMonitor replicaLagMonitor;
+
+    private String username;
+    private Item item;
+    private UserOrder order;
+
+    @Before
+    public void setUp() throws Exception {
+        routingDataSource = dataSource.unwrap(ReadReplicaRoutingDataSource.class);
+        replicaLagMonitor = routingDataSource.getMonitor();
+        username = TestUsers.uniqueUsername("routing");
+        item = new Item();
+        item.setName("Routed item");
+        item.setDescription("Inserted by ReadReplicaRoutingTest");
+        item.setPrice(new BigDecimal("1.00"));
+        itemRepository.save(item);
+        order = new TransactionTemplate(transactionManager).execute(status -> {
+            Cart cart = TestUsers.createWithCart(transactionManager, userRepository, cartRepository, username,
+                    created -> created.addItem(item));
+            return orderSummaryService.place(UserOrder.createFromCart(cart));
+        });
+        // a fresh heartbeat goes over with the data, so the next check sees the replica as current
+        replicaLagMonitor.check();
+        replicate();
+        replicaLagMonitor.check();
+    }
+
+    private static void replicate() throws Exception {
+        File snapshot = File.createTempFile("replica", ".sql");
+        try (Connection primary = DriverManager.getConnection(PRIMARY_URL, "sa", "");
+             PreparedStatement script = primary.prepareStatement("script to ?")) {
+            script.setString(1, snapshot.getAbsolutePath());
+            script.execute();
+        }
+        try (Connection replica = DriverManager.getConnection(REPLICA_URL, "sa", "");
+             Statement statement = replica.createStatement()) {
+            statement.execute("drop all objects");
+            statement.execute("runscript from '" + snapshot.getAbsolutePath() + "'");
+        } finally {
+            snapshot.delete();
+        }
+    }
+
+    private static void update(String url, String sql, Object... parameters) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setObject(i + 1, parameters[i]);
+            }
+            statement.executeUpdate();
+        }
+    }
+
+    private static int queryInt(String url, String sql, Object... parameters) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setObject(i + 1, parameters[i]);
+            }
+            try (ResultSet row = statement.executeQuery()) {
+                row.next();
+                return row.getInt(1);
+            }
+        }
+    }
+
+    @Test
+    public void testItemById_ReadFromReplica() throws Exception {
+        update(REPLICA_URL, "update item set name = 'Replica item' where id = ?", item.getId());
+        long replicaReads = routingDataSource.getRoutedCount(ReadReplicaRoutingDataSource.Route.REPLICA);
+
+        mockMvc.perform(get("/api/item/" + item.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Replica item"));
+        assertTrue(routingDataSource.getRoutedCount(ReadReplicaRoutingDataSource.Route.REPLICA) > replicaReads);
+    }
+
+    @Test
+    public void testOrderHistory_ReadFromReplica() throws Exception {
+        update(REPLICA_URL, "update user_order set reference = 'replica-ref' where id = ?", order.getId());
+
+        mockMvc.perform(get("/api/order/history/" + username))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].reference").value("replica-ref"));
+    }
+
+    @Test
+    public void testOrderHistory_LaggingReplicaFallsBackToPrimary() throws Exception {
+        update(REPLICA_URL, "update user_order set reference = 'replica-ref' where id = ?", order.getId());
+        update(REPLICA_URL, "update replication_heartbeat set beat_millis = ?", System.currentTimeMillis() - 60_000);
+        replicaLagMonitor.check();
+        long fallbacks = routingDataSource.getRoutedCount(ReadReplicaRoutingDataSource.Route.FALLBACK);
+
+        mockMvc.perform(get("/api/order/history/" + username))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].reference").value(order.getReference()));
+        assertTrue(replicaLagMonitor.getLagMillis() >= 60_000);
+        assertTrue(routingDataSource.getRoutedCount(ReadReplicaRoutingDataSource.Route.FALLBACK) > fallbacks);
+    }
+
+    @Test
+    public void testAddToCart_WrittenToPrimary() throws Exception {
+        mockMvc.perform(post("/api/cart/addToCart")
+                .contentType("application/json")
+                .content("{\"username\":\"" + username + "\", \"itemId\":" + item.getId() + ", \"quantity\":2}"))
+                .andExpect(status().isOk());
+
+        String quantity = "select l.quantity from cart_line l join user u on u.cart_id = l.cart_id where u.username = ?";
+        assertEquals(3, queryInt(PRIMARY_URL, quantity, username));
+        assertEquals(1, queryInt(REPLICA_URL, quantity, username));
+    }
+}
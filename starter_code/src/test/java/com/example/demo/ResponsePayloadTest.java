@@ -0,0 +1,160 @@
+package com.example.demo;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.persistence.repositories.CartRepository;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.model.persistence.repositories.OrderRepository;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.responses.OrderResponse;
+import com.example.demo.service.CartService;
+import com.example.demo.service.OrderHistoryService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares what the cart and order history endpoints cost as entity graphs, the way they used
+ * to be serialized, against the projections they return now: statements executed and bytes of
+ * JSON written for the same data. Each read runs in its own transaction, as it would inside a
+ * request with the session held open for the view.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "order.outbox.enabled=false")
+public class ResponsePayloadTest {
+    private static final int ITEMS = 20;
+    private static final int ORDERS = 20;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private OrderHistoryService orderHistoryService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transaction;
+    private Statistics statistics;
+    private String username;
+    private Long userId;
+
+    @Before
+    public void setUp() {
+        transaction = new TransactionTemplate(transactionManager);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        username = TestUsers.uniqueUsername("payload");
+        userId = transaction.execute(status -> {
+            List<Item> items = new ArrayList<>();
+            for (int i = 0; i < ITEMS; i++) {
+                Item item = new Item();
+                item.setName("Payload item " + i);
+                item.setDescription("An item with a description as long as a real catalog entry would have");
+                item.setPrice(BigDecimal.valueOf(100 + i, 2));
+                items.add(item);
+            }
+            itemRepository.saveAll(items);
+
+            Cart cart = TestUsers.createWithCart(transactionManager, userRepository, cartRepository, username,
+                    created -> {
+                        for (Item item : items) {
+                            created.addItem(item, 2);
+                        }
+                    });
+            for (int i = 0; i < ORDERS; i++) {
+                orderRepository.save(UserOrder.createFromCart(cart));
+            }
+            return cart.getUser().getId();
+        });
+    }
+
+    @Test
+    public void testCartResponse_FewerStatementsAndBytesThanEntity() {
+        Measurement entity = measure(() -> userRepository.findByUsername(username).getCart());
+        Measurement projection = measure(() -> cartService.find(username).get());
+
+        assertEquals(ITEMS, cartService.find(username).get().getLines().size());
+        // the cart row and its lines
+        assertEquals(2, projection.statements);
+        assertTrue(entity + " vs " + projection, entity.statements > projection.statements);
+        assertTrue(entity + " vs " + projection, entity.bytes > projection.bytes);
+    }
+
+    @Test
+    public void testOrderHistory_FewerStatementsAndBytesThanEntities() {
+        Measurement entity = measure(() -> orderRepository.findByUser(userRepository.findByUsername(username)));
+        Measurement projection = measure(() -> orderHistoryService.all(userId));
+
+        List<OrderResponse> orders = orderHistoryService.all(userId);
+        assertEquals(ORDERS, orders.size());
+        assertEquals(ITEMS, orders.get(0).getLines().size());
+        // the order rows and all of their lines
+        assertEquals(2, projection.statements);
+        assertTrue(entity + " vs " + projection, entity.statements > projection.statements);
+        assertTrue(entity + " vs " + projection, entity.bytes > projection.bytes);
+    }
+
+    private Measurement measure(Supplier<Object> read) {
+        return transaction.execute(status -> {
+            statistics.clear();
+            byte[] json;
+            try {
+                json = objectMapper.writeValueAsBytes(read.get());
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            return new Measurement(statistics.getPrepareStatementCount(), json.length);
+        });
+    }
+
+    private static final class Measurement {
+        private final long statements;
+        private final int bytes;
+
+        private Measurement(long statements, int bytes) {
+            this.statements = statements;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public String toString() {
+            return statements + " statements, " + bytes + " bytes";
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.demo;
+
+import com.example.demo.cache.SecondLevelCacheConfiguration;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "order.outbox.enabled=false")
+public class SecondLevelCacheTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Statistics statistics;
+    private TransactionTemplate transaction;
+    private String username;
+    private String itemName;
+
+    @Before
+    public void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        transaction = new TransactionTemplate(transactionManager);
+        username = TestUsers.uniqueUsername("cached");
+        itemName = "Cached item " + System.nanoTime();
+
+        TestUsers.create(userRepository, username);
+
+        Item item = new Item();
+        item.setName(itemName);
+        item.setDescription("Inserted by SecondLevelCacheTest");
+        item.setPrice(new BigDecimal("1.00"));
+        itemRepository.save(item);
+    }
+
+    /**
+     * Runs {@code work} in a transaction of its own and returns the statements it prepared.
+     */
+    private long statements(Supplier<?> work) {
+        statistics.clear();
+        transaction.execute(status -> work.get());
+        return statistics.getPrepareStatementCount();
+    }
+
+    @Test
+    public void testFindByUsername_SecondLookupServedFromCache() {
+        statements(() -> userRepository.findByUsername(username));
+
+        assertEquals(0, statements(() -> userRepository.findByUsername(username)));
+        assertEquals(1, statistics.getQueryCacheHitCount());
+    }
+
+    @Test
+    public void testFindByUsername_UpdateInvalidatesCachedResult() {
+        statements(() -> userRepository.findByUsername(username));
+        transaction.execute(status -> {
+            userRepository.findByUsername(username).setPassword("rehashedPassword");
+            return null;
+        });
+
+        assertTrue(statements(() -> userRepository.findByUsername(username)) > 0);
+        assertEquals("rehashedPassword", transaction.execute(status ->
+                userRepository.findByUsername(username).getPassword()));
+    }
+
+    @Test
+    public void testFindByName_SecondLookupServedFromCache() {
+        statements(() -> itemRepository.findByName(itemName));
+
+        assertEquals(0, statements(() -> itemRepository.findByName(itemName)));
+    }
+
+    @Test
+    public void testItemById_UpdateVisibleToNextRead() {
+        Long id = itemRepository.findByName(itemName).get(0).getId();
+        statements(() -> itemRepository.findById(id));
+        assertEquals(0, statements(() -> itemRepository.findById(id)));
+
+        transaction.execute(status -> {
+            itemRepository.findById(id).get().setName(itemName + " renamed");
+            return null;
+        });
+
+        assertEquals(itemName + " renamed", transaction.execute(status -> itemRepository.findById(id).get().getName()));
+        assertTrue(itemRepository.findByName(itemName).isEmpty());
+    }
+
+    @Test
+    public void testRegionStatistics_Exported() {
+        statements(() -> userRepository.findByUsername(username));
+        statements(() -> userRepository.findByUsername(username));
+
+        assertTrue(meterRegistry.get("cache.gets").tag("cache", SecondLevelCacheConfiguration.USER_REGION)
+                .tag("result", "hit").functionCounter().count() > 0);
+        assertNotNull(meterRegistry.get("cache.size").tag("cache", SecondLevelCacheConfiguration.ITEM_REGION).gauge());
+        assertTrue(meterRegistry.get("cache.size").tag("cache", SecondLevelCacheConfiguration.USER_BY_USERNAME_REGION)
+                .gauge().value() > 0);
+    }
+}
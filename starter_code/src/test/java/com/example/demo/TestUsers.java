@@ -0,0 +1,53 @@
+package com.example.demo;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.repositories.CartRepository;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.Consumer;
+
+/**
+ * Saves the users that the database-backed tests run against.
+ */
+public class TestUsers {
+    public static final String PASSWORD = "hashedPassword";
+
+    public static String uniqueUsername(String prefix) {
+        return prefix + "-" + System.nanoTime();
+    }
+
+    /**
+     * Saves a user without a cart.
+     */
+    public static User create(UserRepository userRepository, String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setPassword(PASSWORD);
+        return userRepository.save(user);
+    }
+
+    /**
+     * Saves a user together with a cart that {@code contents} has filled, in a transaction of its
+     * own or in the caller's if one is active.
+     *
+     * @return the saved cart, with {@link Cart#getUser()} set
+     */
+    public static Cart createWithCart(PlatformTransactionManager transactionManager, UserRepository userRepository,
+                                      CartRepository cartRepository, String username, Consumer<Cart> contents) {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            Cart cart = new Cart();
+            contents.accept(cart);
+            User user = new User();
+            user.setUsername(username);
+            user.setPassword(PASSWORD);
+            user.setCart(cart);
+            cart.setUser(user);
+            cartRepository.save(cart);
+            userRepository.save(user);
+            return cart;
+        });
+    }
+}
@@ -6,8 +6,10 @@ import com.example.demo.model.persistence.User;
 import com.example.demo.model.persistence.repositories.CartRepository;
 import com.example.demo.model.persistence.repositories.UserRepository;
 import com.example.demo.model.requests.CreateUserRequest;
+import com.example.demo.security.PasswordEncoderBusyException;
 import org.junit.Before;
 import org.junit.Test;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 
@@ -16,7 +18,10 @@ import java.util.Optional;
 import static junit.framework.TestCase.assertEquals;
 import static junit.framework.TestCase.assertNotNull;
 import static junit.framework.TestCase.assertNull;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class UserTest {
@@ -53,6 +58,23 @@ public class UserTest {
         assertEquals("hashedPassword", user.getPassword());
     }
 
+    @Test
+    public void testCreateUser_PasswordEncoderBusy() {
+        CreateUserRequest request = new CreateUserRequest();
+        request.setUsername("huytt13");
+        request.setPassword("thanhhuy123");
+        request.setConfirmPassword("thanhhuy123");
+
+        when(bCryptPasswordEncoder.encode("thanhhuy123"))
+                .thenThrow(new PasswordEncoderBusyException("Password hashing queue is full", null));
+
+        ResponseEntity<User> response = userController.createUser(request);
+        assertEquals(503, response.getStatusCodeValue());
+        assertEquals("1", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        verify(userRepository, never()).save(any(User.class));
+        verify(cartRepository, never()).save(any(Cart.class));
+    }
+
     @Test
     public void testCreateUser_PasswordMismatch() {
         CreateUserRequest request = new CreateUserRequest();
@@ -64,6 +86,7 @@ public class UserTest {
         assertNotNull(response);
         assertEquals(400, response.getStatusCodeValue());
         assertNull(response.getBody());
+        verify(cartRepository, never()).save(any(Cart.class));
     }
 
     @Test
@@ -77,6 +100,7 @@ public class UserTest {
         assertNotNull(response);
         assertEquals(400, response.getStatusCodeValue());
         assertNull(response.getBody());
+        verify(cartRepository, never()).save(any(Cart.class));
     }
 
     @Test
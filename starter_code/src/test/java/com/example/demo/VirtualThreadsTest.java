@@ -0,0 +1,29 @@
+package com.example.demo;
+
+import com.example.demo.threading.VirtualThreads;
+import org.junit.Test;
+
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class VirtualThreadsTest {
+
+    @Test
+    public void testNewThreadPerTaskExecutor_AvailableFromJava21() throws Exception {
+        Optional<ExecutorService> executor = VirtualThreads.newThreadPerTaskExecutor("test-virtual-");
+
+        assertEquals(Runtime.version().feature() >= 21, executor.isPresent());
+        assertEquals(executor.isPresent(), VirtualThreads.isSupported());
+        if (executor.isPresent()) {
+            try {
+                String name = executor.get().submit(() -> Thread.currentThread().getName()).get();
+                assertTrue(name.startsWith("test-virtual-"));
+            } finally {
+                executor.get().shutdown();
+            }
+        }
+    }
+}